@@ -1,31 +1,220 @@
 package com.evansloan.collectionlog;
 
-import lombok.AllArgsConstructor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import java.util.Map;
 
 @Getter
-@AllArgsConstructor
 public class CollectionLog
 {
     private final String username;
 
-    @Setter
     private int totalObtained;
 
-    @Setter
     private int totalItems;
 
-    @Setter
     private int uniqueObtained;
 
-    @Setter
     private int uniqueItems;
 
     private final Map<String, CollectionLogTab> tabs;
 
+    /*
+     * Index of item IDs to every page containing that item
+     * Items such as pets can appear on more than one page. Not kept by snapshots
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, List<CollectionLogPage>> itemPageIndex;
+
+    /*
+     * Index of normalized page names to positions in the page list for case-insensitive page lookups.
+     * Pages are never added or removed after construction, so the index is shared with snapshots
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> pageNameIndex;
+
+    /*
+     * Flat list of every page for constant time random page selection
+     */
+    @Getter(AccessLevel.NONE)
+    private final List<CollectionLogPage> pageList;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<CollectionLogPage, Integer> pageListIndex;
+
+    /*
+     * Index of every missing item for constant time random item selection.
+     * Entries are packed as (page list index << 32 | item slot), missingItemPositions holds the
+     * position of each page slot in missingItems, or -1 if the item is obtained. Snapshots share
+     * missingItems with the collection log, which copies it before its next change. Snapshots
+     * don't keep missingItemPositions
+     */
+    @Getter(AccessLevel.NONE)
+    private long[] missingItems;
+
+    @Getter(AccessLevel.NONE)
+    private int missingItemCount;
+
+    @Getter(AccessLevel.NONE)
+    private int[][] missingItemPositions;
+
+    @Getter(AccessLevel.NONE)
+    private boolean isMissingItemsShared;
+
+    @Getter(AccessLevel.NONE)
+    private CollectionLog snapshot;
+
+    public CollectionLog(String username, int uniqueObtained, int uniqueItems, Map<String, CollectionLogTab> tabs)
+    {
+        this.username = username;
+        this.uniqueObtained = uniqueObtained;
+        this.uniqueItems = uniqueItems;
+        this.tabs = tabs;
+        this.itemPageIndex = new HashMap<>();
+        this.pageNameIndex = new HashMap<>();
+        this.pageList = new ArrayList<>();
+        this.pageListIndex = new IdentityHashMap<>();
+
+        for (CollectionLogTab tab : tabs.values())
+        {
+            tab.setCollectionLog(this);
+            totalObtained += tab.getObtainedItemCount();
+            totalItems += tab.getItemCount();
+
+            for (CollectionLogPage page : tab.getPages().values())
+            {
+                pageNameIndex.putIfAbsent(normalizePageName(page.getName()), pageList.size());
+                pageListIndex.put(page, pageList.size());
+                pageList.add(page);
+                indexPage(page);
+            }
+        }
+
+        missingItems = new long[Math.max(totalItems - totalObtained, 16)];
+        missingItemPositions = new int[pageList.size()][];
+        for (int i = 0; i < pageList.size(); i++)
+        {
+            indexMissingItems(i);
+        }
+    }
+
+    /**
+     * Create a snapshot sharing the page name and missing item indexes of the collection log. Tabs and pages
+     * are snapshots which may be shared with earlier snapshots, so they aren't re-parented
+     *
+     * @param collectionLog Collection log to snapshot
+     * @param tabs Tab snapshots
+     * @param pageList Page snapshots in the collection log's page list order
+     */
+    private CollectionLog(CollectionLog collectionLog, Map<String, CollectionLogTab> tabs, List<CollectionLogPage> pageList)
+    {
+        this.username = collectionLog.username;
+        this.totalObtained = collectionLog.totalObtained;
+        this.totalItems = collectionLog.totalItems;
+        this.uniqueObtained = collectionLog.uniqueObtained;
+        this.uniqueItems = collectionLog.uniqueItems;
+        this.tabs = tabs;
+        this.itemPageIndex = null;
+        this.pageNameIndex = collectionLog.pageNameIndex;
+        this.pageList = pageList;
+        this.pageListIndex = null;
+        this.missingItems = collectionLog.missingItems;
+        this.missingItemCount = collectionLog.missingItemCount;
+        this.snapshot = this;
+        collectionLog.isMissingItemsShared = true;
+    }
+
+    private static String normalizePageName(String pageName)
+    {
+        return pageName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public void setUniqueObtained(int uniqueObtained)
+    {
+        checkNotSnapshot();
+        if (this.uniqueObtained != uniqueObtained)
+        {
+            this.uniqueObtained = uniqueObtained;
+            invalidateSnapshot();
+        }
+    }
+
+    public void setUniqueItems(int uniqueItems)
+    {
+        checkNotSnapshot();
+        if (this.uniqueItems != uniqueItems)
+        {
+            this.uniqueItems = uniqueItems;
+            invalidateSnapshot();
+        }
+    }
+
+    /**
+     * Get an immutable copy of the collection log. Unmodified tabs and pages are shared with
+     * previous snapshots, so only pages changed since the last snapshot are copied.
+     * Snapshots don't keep the item index of the collection log.
+     * Must be called from the thread modifying the collection log
+     *
+     * @return Immutable copy of the collection log
+     */
+    public CollectionLog snapshot()
+    {
+        if (snapshot != null)
+        {
+            return snapshot;
+        }
+
+        ImmutableMap.Builder<String, CollectionLogTab> tabsCopy = ImmutableMap.builder();
+        for (Map.Entry<String, CollectionLogTab> tab : tabs.entrySet())
+        {
+            tabsCopy.put(tab.getKey(), tab.getValue().snapshot());
+        }
+
+        // Page snapshots are cached by their pages, so these are the pages of the tab snapshots
+        ImmutableList.Builder<CollectionLogPage> pageListCopy = ImmutableList.builder();
+        for (CollectionLogPage page : pageList)
+        {
+            pageListCopy.add(page.snapshot());
+        }
+
+        snapshot = new CollectionLog(this, tabsCopy.build(), pageListCopy.build());
+        return snapshot;
+    }
+
+    /**
+     * @return Whether this is an immutable snapshot of a collection log
+     */
+    public boolean isSnapshot()
+    {
+        return snapshot == this;
+    }
+
+    void invalidateSnapshot()
+    {
+        if (!isSnapshot())
+        {
+            snapshot = null;
+        }
+    }
+
+    private void checkNotSnapshot()
+    {
+        if (isSnapshot())
+        {
+            throw new UnsupportedOperationException("Collection log snapshots can't be modified");
+        }
+    }
+
     public CollectionLogPage searchForPage(String pageName)
     {
         if (StringUtils.isEmpty(pageName))
@@ -33,40 +222,236 @@ public class CollectionLog
             return null;
         }
 
-        for (CollectionLogTab tab : tabs.values())
+        Integer pageIndex = pageNameIndex.get(normalizePageName(pageName));
+        if (pageIndex == null)
         {
-            for (CollectionLogPage page : tab.getPages().values())
+            return null;
+        }
+        return pageList.get(pageIndex);
+    }
+
+    /**
+     * Get all pages containing the given item
+     *
+     * @param itemId ID of the item to look up
+     * @return Pages containing the item, empty if the item is not in the collection log
+     */
+    public List<CollectionLogPage> getPagesByItemId(int itemId)
+    {
+        if (isSnapshot())
+        {
+            List<CollectionLogPage> pages = new ArrayList<>(1);
+            for (CollectionLogPage page : pageList)
             {
-                if (pageName.equalsIgnoreCase(page.getName()))
+                if (page.getDefinition().getItemSlot(itemId) != -1)
                 {
-                    return page;
+                    pages.add(page);
                 }
             }
+            return pages;
+        }
+
+        List<CollectionLogPage> pages = itemPageIndex.get(itemId);
+        if (pages == null)
+        {
+            return Collections.emptyList();
         }
-        return null;
+        return pages;
     }
 
-    public CollectionLogPage randomPage()
+    /**
+     * Replace the items of a page, keeping the item index in sync
+     *
+     * @param page Page to update
+     * @param items New items of the page
+     */
+    public void setPageItems(CollectionLogPage page, List<CollectionLogItem> items)
     {
-        int pageCount = 0;
-        for (CollectionLogTab tab : tabs.values())
+        checkNotSnapshot();
+        unindexPage(page);
+        unindexMissingItems(page);
+        page.setItems(items);
+        indexPage(page);
+
+        Integer pageIndex = pageListIndex.get(page);
+        if (pageIndex != null)
+        {
+            indexMissingItems(pageIndex);
+        }
+    }
+
+    /**
+     * Update the missing item index after an item in a page was obtained or un-obtained
+     *
+     * @param page Page containing the item
+     * @param slot Position of the item in the page
+     * @param obtained Whether the item is now obtained
+     */
+    void updateMissingItem(CollectionLogPage page, int slot, boolean obtained)
+    {
+        Integer pageIndex = pageListIndex.get(page);
+        if (pageIndex == null)
         {
-            pageCount += tab.getPages().size();
+            return;
         }
 
-        int randomIndex = (int) (Math.random() * pageCount);
-        int index = 0;
-        for (CollectionLogTab tab : tabs.values())
+        if (obtained)
         {
-            for (CollectionLogPage page : tab.getPages().values())
+            removeMissingItem(pageIndex, slot);
+        }
+        else
+        {
+            addMissingItem(pageIndex, slot);
+        }
+    }
+
+    /**
+     * Apply a change in a tab's item counts to the collection log totals
+     *
+     * @param obtainedDelta Change in obtained items
+     * @param itemDelta Change in total items
+     */
+    void updateCounts(int obtainedDelta, int itemDelta)
+    {
+        totalObtained += obtainedDelta;
+        totalItems += itemDelta;
+    }
+
+    private void indexPage(CollectionLogPage page)
+    {
+        for (CollectionLogItem item : page.getItems())
+        {
+            List<CollectionLogPage> pages = itemPageIndex.computeIfAbsent(item.getId(), k -> new ArrayList<>(1));
+            if (!pages.contains(page))
             {
-                if (index == randomIndex)
-                {
-                    return page;
-                }
-                index++;
+                pages.add(page);
+            }
+        }
+    }
+
+    private void unindexPage(CollectionLogPage page)
+    {
+        for (CollectionLogItem item : page.getItems())
+        {
+            List<CollectionLogPage> pages = itemPageIndex.get(item.getId());
+            if (pages == null)
+            {
+                continue;
+            }
+
+            pages.remove(page);
+            if (pages.isEmpty())
+            {
+                itemPageIndex.remove(item.getId());
+            }
+        }
+    }
+
+    private void indexMissingItems(int pageIndex)
+    {
+        CollectionLogPage page = pageList.get(pageIndex);
+        int itemCount = page.getDefinition().getItemCount();
+        int[] positions = new int[itemCount];
+        Arrays.fill(positions, -1);
+        missingItemPositions[pageIndex] = positions;
+
+        for (int slot = 0; slot < itemCount; slot++)
+        {
+            if (!page.isItemObtained(slot))
+            {
+                addMissingItem(pageIndex, slot);
             }
         }
-        return null;
     }
-}
\ No newline at end of file
+
+    private void unindexMissingItems(CollectionLogPage page)
+    {
+        Integer pageIndex = pageListIndex.get(page);
+        if (pageIndex == null)
+        {
+            return;
+        }
+
+        int[] positions = missingItemPositions[pageIndex];
+        for (int slot = 0; slot < positions.length; slot++)
+        {
+            removeMissingItem(pageIndex, slot);
+        }
+    }
+
+    private void addMissingItem(int pageIndex, int slot)
+    {
+        int[] positions = missingItemPositions[pageIndex];
+        if (positions[slot] != -1)
+        {
+            return;
+        }
+
+        if (missingItemCount == missingItems.length)
+        {
+            missingItems = Arrays.copyOf(missingItems, missingItems.length * 2);
+            isMissingItemsShared = false;
+        }
+        unshareMissingItems();
+
+        missingItems[missingItemCount] = ((long) pageIndex << 32) | slot;
+        positions[slot] = missingItemCount;
+        missingItemCount++;
+    }
+
+    private void removeMissingItem(int pageIndex, int slot)
+    {
+        int[] positions = missingItemPositions[pageIndex];
+        int position = positions[slot];
+        if (position == -1)
+        {
+            return;
+        }
+
+        // Move the last entry into the removed entry's position
+        unshareMissingItems();
+        missingItemCount--;
+        long last = missingItems[missingItemCount];
+        missingItems[position] = last;
+        missingItemPositions[(int) (last >>> 32)][(int) last] = position;
+        positions[slot] = -1;
+    }
+
+    /**
+     * Copy the missing item index if a snapshot shares it, so the snapshot keeps the entries it was taken with
+     */
+    private void unshareMissingItems()
+    {
+        if (isMissingItemsShared)
+        {
+            missingItems = missingItems.clone();
+            isMissingItemsShared = false;
+        }
+    }
+
+    public CollectionLogPage randomPage()
+    {
+        if (pageList.isEmpty())
+        {
+            return null;
+        }
+
+        return pageList.get((int) (Math.random() * pageList.size()));
+    }
+
+    /**
+     * Get a random item that has not been obtained
+     *
+     * @return Random missing item, null if every item is obtained
+     */
+    public CollectionLogItem randomMissingItem()
+    {
+        if (missingItemCount == 0)
+        {
+            return null;
+        }
+
+        long missingItem = missingItems[(int) (Math.random() * missingItemCount)];
+        return pageList.get((int) (missingItem >>> 32)).getItems().get((int) missingItem);
+    }
+}
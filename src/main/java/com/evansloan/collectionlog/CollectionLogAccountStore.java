@@ -0,0 +1,666 @@
+package com.evansloan.collectionlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Singleton;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import static net.runelite.client.RuneLite.RUNELITE_DIR;
+
+/**
+ * Read-only, memory-mapped store of every local account's saved collection log.
+ * Lookups read only the bytes of the account and page requested, and the mapped file is shared
+ * through the OS page cache by every RuneLite instance on the machine.
+ *
+ * <pre>
+ * store:   int magic, int version, int account count,
+ *          per account int username hash, int section offset, int section length, sorted by username hash
+ * section: int username, int unique obtained, int unique items, int page count,
+ *          per page int name hash, int name, int page offset, sorted by name hash
+ * page:    int flags, int item count, int kill count count,
+ *          per item int id, int name, int quantity, obtained flags packed 8 items per byte padded to 4 bytes,
+ *          per kill count int name, int amount
+ * strings: int UTF-8 length + bytes
+ * </pre>
+ *
+ * All offsets in a section, including string references, are relative to the section so sections can be
+ * copied between store files unchanged. Each update writes a new store file instead of replacing the mapped one,
+ * since a mapped file can't be replaced on every platform. Writers hold a lock on a fixed lock file while they
+ * copy the latest store, so instances writing at the same time don't drop each other's updates
+ */
+@Slf4j
+@Singleton
+public class CollectionLogAccountStore
+{
+	private static final File ACCOUNT_STORE_DIR = new File(new File(RUNELITE_DIR, "collectionlog"), "accounts");
+	private static final String ACCOUNT_STORE_FILE_PREFIX = "accounts-";
+	private static final String ACCOUNT_STORE_FILE_EXTENSION = ".dat";
+	private static final File ACCOUNT_STORE_LOCK_FILE = new File(ACCOUNT_STORE_DIR, "accounts.lock");
+
+	private static final int MAGIC = 0x434c4153;
+	private static final int VERSION = 2;
+	private static final int STORE_HEADER_SIZE = 12;
+	private static final int ACCOUNT_ENTRY_SIZE = 12;
+	private static final int SECTION_HEADER_SIZE = 16;
+	private static final int PAGE_ENTRY_SIZE = 12;
+	private static final int PAGE_HEADER_SIZE = 12;
+	private static final int ITEM_SIZE = 12;
+	private static final int KILL_COUNT_SIZE = 8;
+
+	private static final int PAGE_FLAG_IS_UPDATED = 1;
+
+	/*
+	 * Guards the mapped store. Separate from the writer's lock so lookups don't wait on a store being written
+	 */
+	private final Object mapLock = new Object();
+
+	private File mappedFile;
+	private ByteBuffer mappedStore;
+
+	/*
+	 * Store files with an unreadable header, skipped instead of being mapped again on every lookup
+	 */
+	private final Set<File> rejectedFiles = new HashSet<>();
+
+	/**
+	 * Get an account's saved collection log from the store. Reads the store directory, so avoid calling
+	 * on the client thread
+	 *
+	 * @param username Username of the account
+	 * @return Account's saved collection log, null if the account isn't in the store
+	 */
+	public Account getAccount(String username)
+	{
+		ByteBuffer store = getMappedStore();
+		if (store == null || username == null)
+		{
+			return null;
+		}
+
+		int index = findAccount(store, username);
+		if (index < 0)
+		{
+			return null;
+		}
+		return new Account(store, getSectionOffset(store, index));
+	}
+
+	/**
+	 * Find an account's entry by binary search over the username hashes, then by name among accounts sharing the hash
+	 *
+	 * @return Index of the account's entry, -1 if the account isn't in the store
+	 */
+	private static int findAccount(ByteBuffer store, String username)
+	{
+		int accountCount = store.getInt(8);
+		int usernameHash = hashUsername(username);
+		int low = 0;
+		int high = accountCount - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			int middleHash = getUsernameHash(store, middle);
+			if (middleHash < usernameHash)
+			{
+				low = middle + 1;
+			}
+			else if (middleHash > usernameHash)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				int index = middle;
+				while (index > 0 && getUsernameHash(store, index - 1) == usernameHash)
+				{
+					index--;
+				}
+
+				for (; index < accountCount && getUsernameHash(store, index) == usernameHash; index++)
+				{
+					int sectionOffset = getSectionOffset(store, index);
+					if (username.equalsIgnoreCase(readString(store, sectionOffset, store.getInt(sectionOffset))))
+					{
+						return index;
+					}
+				}
+				return -1;
+			}
+		}
+
+		return -1;
+	}
+
+	private static int getUsernameHash(ByteBuffer store, int index)
+	{
+		return store.getInt(STORE_HEADER_SIZE + index * ACCOUNT_ENTRY_SIZE);
+	}
+
+	private static int getSectionOffset(ByteBuffer store, int index)
+	{
+		return store.getInt(STORE_HEADER_SIZE + index * ACCOUNT_ENTRY_SIZE + 4);
+	}
+
+	private static ByteBuffer getSection(ByteBuffer store, int index)
+	{
+		int sectionOffset = getSectionOffset(store, index);
+		ByteBuffer section = store.duplicate();
+		section.position(sectionOffset);
+		section.limit(sectionOffset + store.getInt(STORE_HEADER_SIZE + index * ACCOUNT_ENTRY_SIZE + 8));
+		return section.slice();
+	}
+
+	/**
+	 * Write a new store with an account's collection log replaced. Other accounts are copied from the current store
+	 *
+	 * @param username Username of the account
+	 * @param collectionLog Collection log snapshot to store
+	 * @return Whether the store was written
+	 */
+	public synchronized boolean update(String username, CollectionLog collectionLog)
+	{
+		return writeStore(username, buildSection(username, collectionLog));
+	}
+
+	/**
+	 * Write a new store without an account
+	 *
+	 * @param username Username of the account to remove
+	 * @return Whether the store was written
+	 */
+	public synchronized boolean remove(String username)
+	{
+		return writeStore(username, null);
+	}
+
+	private boolean writeStore(String username, byte[] newSection)
+	{
+		ACCOUNT_STORE_DIR.mkdirs();
+		try (FileChannel lockChannel = FileChannel.open(ACCOUNT_STORE_LOCK_FILE.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileLock ignored = lockChannel.lock())
+		{
+			return writeLatestStore(username, newSection);
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to lock account store at path: " + ACCOUNT_STORE_LOCK_FILE.getPath() + "\n" + e.getMessage());
+		}
+
+		return false;
+	}
+
+	/**
+	 * Write a new store from the latest store file with an account's section replaced. Must hold the store lock
+	 * so no other instance writes a store between this one being read and replaced
+	 */
+	private boolean writeLatestStore(String username, byte[] newSection)
+	{
+		int usernameHash = hashUsername(username);
+		List<Integer> usernameHashes = new ArrayList<>();
+		List<ByteBuffer> sections = new ArrayList<>();
+		boolean isChanged = newSection != null;
+
+		ByteBuffer store = getMappedStore();
+		if (store != null)
+		{
+			int index = findAccount(store, username);
+			if (index >= 0)
+			{
+				// Unchanged accounts don't need a new store
+				isChanged = newSection == null || !getSection(store, index).equals(ByteBuffer.wrap(newSection));
+			}
+
+			int accountCount = store.getInt(8);
+			for (int i = 0; i < accountCount; i++)
+			{
+				if (i != index)
+				{
+					usernameHashes.add(getUsernameHash(store, i));
+					sections.add(getSection(store, i));
+				}
+			}
+		}
+
+		if (!isChanged)
+		{
+			return true;
+		}
+
+		if (newSection != null)
+		{
+			int position = 0;
+			while (position < usernameHashes.size() && usernameHashes.get(position) <= usernameHash)
+			{
+				position++;
+			}
+			usernameHashes.add(position, usernameHash);
+			sections.add(position, ByteBuffer.wrap(newSection));
+		}
+
+		long generation = System.currentTimeMillis();
+		File newFile = new File(ACCOUNT_STORE_DIR, ACCOUNT_STORE_FILE_PREFIX + generation + ACCOUNT_STORE_FILE_EXTENSION);
+		while (newFile.exists())
+		{
+			generation++;
+			newFile = new File(ACCOUNT_STORE_DIR, ACCOUNT_STORE_FILE_PREFIX + generation + ACCOUNT_STORE_FILE_EXTENSION);
+		}
+		File tempFile = new File(newFile.getPath() + ".tmp");
+		try
+		{
+			try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				ByteBuffer header = ByteBuffer.allocate(STORE_HEADER_SIZE + sections.size() * ACCOUNT_ENTRY_SIZE);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putInt(sections.size());
+
+				int sectionOffset = header.capacity();
+				for (int i = 0; i < sections.size(); i++)
+				{
+					header.putInt(usernameHashes.get(i));
+					header.putInt(sectionOffset);
+					header.putInt(sections.get(i).remaining());
+					sectionOffset += sections.get(i).remaining();
+				}
+				header.flip();
+				writeFully(out, header);
+
+				// Other accounts' sections are copied straight from the mapped store
+				for (ByteBuffer section : sections)
+				{
+					writeFully(out, section);
+				}
+			}
+			Files.move(tempFile.toPath(), newFile.toPath());
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to write account store at path: " + newFile.getPath() + "\n" + e.getMessage());
+			tempFile.delete();
+			return false;
+		}
+
+		deleteOldStoreFiles(newFile);
+		return true;
+	}
+
+	private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			out.write(buffer);
+		}
+	}
+
+	/**
+	 * Delete store files older than the latest. Files still mapped by another instance may fail to delete
+	 * on some platforms, and are retried on the next update
+	 */
+	private void deleteOldStoreFiles(File latestFile)
+	{
+		for (File file : listStoreFiles())
+		{
+			if (file.getName().compareTo(latestFile.getName()) < 0)
+			{
+				file.delete();
+			}
+		}
+	}
+
+	private File[] listStoreFiles()
+	{
+		File[] files = ACCOUNT_STORE_DIR.listFiles((dir, name) ->
+			name.startsWith(ACCOUNT_STORE_FILE_PREFIX) && name.endsWith(ACCOUNT_STORE_FILE_EXTENSION));
+		return files == null ? new File[0] : files;
+	}
+
+	/**
+	 * Get the latest store file mapped into memory, remapping if another instance has written a newer one
+	 *
+	 * @return Read-only view of the store, null if there is no readable store
+	 */
+	private ByteBuffer getMappedStore()
+	{
+		synchronized (mapLock)
+		{
+			return mapLatestStoreFile();
+		}
+	}
+
+	private ByteBuffer mapLatestStoreFile()
+	{
+		File[] files = listStoreFiles();
+		Arrays.sort(files, Comparator.comparing(File::getName).reversed());
+
+		// The newest readable store is used, store files written by an incompatible version are skipped
+		for (File file : files)
+		{
+			if (file.equals(mappedFile))
+			{
+				return mappedStore;
+			}
+
+			if (rejectedFiles.contains(file))
+			{
+				continue;
+			}
+
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+			{
+				MappedByteBuffer store = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (store.capacity() < STORE_HEADER_SIZE || store.getInt(0) != MAGIC || store.getInt(4) != VERSION)
+				{
+					log.error("Ignoring unreadable account store: " + file.getPath());
+					rejectedFiles.add(file);
+					continue;
+				}
+
+				mappedStore = store;
+				mappedFile = file;
+				return mappedStore;
+			}
+			catch (IOException e)
+			{
+				log.error("Unable to map account store at path: " + file.getPath() + "\n" + e.getMessage());
+				return mappedStore;
+			}
+		}
+
+		return null;
+	}
+
+	private byte[] buildSection(String username, CollectionLog collectionLog)
+	{
+		List<CollectionLogPage> pages = new ArrayList<>();
+		for (CollectionLogTab tab : collectionLog.getTabs().values())
+		{
+			pages.addAll(tab.getPages().values());
+		}
+		pages.sort((a, b) -> Integer.compare(hashPageName(a.getName()), hashPageName(b.getName())));
+
+		// String offsets are assigned relative to the start of the string area and rebased once its position is known
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		int stringsSize = addString(strings, 0, username);
+		int pagesSize = 0;
+		for (CollectionLogPage page : pages)
+		{
+			stringsSize = addString(strings, stringsSize, page.getName());
+
+			CollectionLogPageDefinition definition = page.getDefinition();
+			for (int slot = 0; slot < definition.getItemCount(); slot++)
+			{
+				stringsSize = addString(strings, stringsSize, definition.getItemName(slot));
+			}
+			for (CollectionLogKillCount killCount : page.getKillCounts())
+			{
+				stringsSize = addString(strings, stringsSize, killCount.getName());
+			}
+
+			pagesSize += getPageSize(definition.getItemCount(), page.getKillCounts().size());
+		}
+
+		int pagesOffset = SECTION_HEADER_SIZE + pages.size() * PAGE_ENTRY_SIZE;
+		int stringsOffset = pagesOffset + pagesSize;
+		ByteBuffer section = ByteBuffer.allocate(stringsOffset + stringsSize);
+
+		section.putInt(stringsOffset + strings.get(username));
+		section.putInt(collectionLog.getUniqueObtained());
+		section.putInt(collectionLog.getUniqueItems());
+		section.putInt(pages.size());
+
+		int pageOffset = pagesOffset;
+		for (CollectionLogPage page : pages)
+		{
+			section.putInt(hashPageName(page.getName()));
+			section.putInt(stringsOffset + strings.get(page.getName()));
+			section.putInt(pageOffset);
+			pageOffset += getPageSize(page.getDefinition().getItemCount(), page.getKillCounts().size());
+		}
+
+		for (CollectionLogPage page : pages)
+		{
+			CollectionLogPageDefinition definition = page.getDefinition();
+			int itemCount = definition.getItemCount();
+			List<CollectionLogKillCount> killCounts = page.getKillCounts();
+
+			section.putInt(page.isUpdated() ? PAGE_FLAG_IS_UPDATED : 0);
+			section.putInt(itemCount);
+			section.putInt(killCounts.size());
+
+			for (int slot = 0; slot < itemCount; slot++)
+			{
+				section.putInt(definition.getItemId(slot));
+				section.putInt(stringsOffset + strings.get(definition.getItemName(slot)));
+				section.putInt(page.getItemQuantity(slot));
+			}
+
+			byte[] obtainedFlags = new byte[getObtainedFlagsSize(itemCount)];
+			for (int slot = 0; slot < itemCount; slot++)
+			{
+				if (page.isItemObtained(slot))
+				{
+					obtainedFlags[slot / 8] |= 1 << (slot % 8);
+				}
+			}
+			section.put(obtainedFlags);
+
+			for (CollectionLogKillCount killCount : killCounts)
+			{
+				section.putInt(stringsOffset + strings.get(killCount.getName()));
+				section.putInt(killCount.getAmount());
+			}
+		}
+
+		for (String string : strings.keySet())
+		{
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			section.putInt(bytes.length);
+			section.put(bytes);
+		}
+
+		return section.array();
+	}
+
+	private static int addString(Map<String, Integer> strings, int stringsSize, String string)
+	{
+		if (strings.containsKey(string))
+		{
+			return stringsSize;
+		}
+
+		strings.put(string, stringsSize);
+		return stringsSize + 4 + string.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static int getPageSize(int itemCount, int killCountCount)
+	{
+		return PAGE_HEADER_SIZE + itemCount * ITEM_SIZE + getObtainedFlagsSize(itemCount) + killCountCount * KILL_COUNT_SIZE;
+	}
+
+	private static int getObtainedFlagsSize(int itemCount)
+	{
+		return (itemCount + 31) / 32 * 4;
+	}
+
+	private static int hashUsername(String username)
+	{
+		return username.toLowerCase(Locale.ROOT).hashCode();
+	}
+
+	private static int hashPageName(String pageName)
+	{
+		return pageName.trim().toLowerCase(Locale.ROOT).hashCode();
+	}
+
+	private static String readString(ByteBuffer store, int sectionOffset, int stringOffset)
+	{
+		int position = sectionOffset + stringOffset;
+		byte[] bytes = new byte[store.getInt(position)];
+		ByteBuffer source = store.duplicate();
+		source.position(position + 4);
+		source.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * An account's saved collection log, read from the mapped store as pages are requested
+	 */
+	public static class Account
+	{
+		private final ByteBuffer store;
+		private final int sectionOffset;
+
+		@Getter
+		private final String username;
+
+		@Getter
+		private final int uniqueObtained;
+
+		@Getter
+		private final int uniqueItems;
+
+		@Getter
+		private final int pageCount;
+
+		private Account(ByteBuffer store, int sectionOffset)
+		{
+			this.store = store;
+			this.sectionOffset = sectionOffset;
+			this.username = readString(store, sectionOffset, store.getInt(sectionOffset));
+			this.uniqueObtained = store.getInt(sectionOffset + 4);
+			this.uniqueItems = store.getInt(sectionOffset + 8);
+			this.pageCount = store.getInt(sectionOffset + 12);
+		}
+
+		/**
+		 * Find a page by name, ignoring case
+		 *
+		 * @param pageName Name of the page
+		 * @return Page, null if the account has no page with the name
+		 */
+		public CollectionLogPage searchForPage(String pageName)
+		{
+			if (pageName == null || pageName.trim().isEmpty())
+			{
+				return null;
+			}
+
+			int nameHash = hashPageName(pageName);
+			int low = 0;
+			int high = pageCount - 1;
+			while (low <= high)
+			{
+				int middle = (low + high) >>> 1;
+				int middleHash = getPageNameHash(middle);
+				if (middleHash < nameHash)
+				{
+					low = middle + 1;
+				}
+				else if (middleHash > nameHash)
+				{
+					high = middle - 1;
+				}
+				else
+				{
+					// Walk back to the first page with the hash, then check each page sharing it
+					int index = middle;
+					while (index > 0 && getPageNameHash(index - 1) == nameHash)
+					{
+						index--;
+					}
+
+					for (; index < pageCount && getPageNameHash(index) == nameHash; index++)
+					{
+						if (getPageName(index).trim().equalsIgnoreCase(pageName.trim()))
+						{
+							return getPage(index);
+						}
+					}
+					return null;
+				}
+			}
+
+			return null;
+		}
+
+		public CollectionLogPage randomPage()
+		{
+			if (pageCount == 0)
+			{
+				return null;
+			}
+			return getPage((int) (Math.random() * pageCount));
+		}
+
+		private int getPageEntryOffset(int index)
+		{
+			return sectionOffset + SECTION_HEADER_SIZE + index * PAGE_ENTRY_SIZE;
+		}
+
+		private int getPageNameHash(int index)
+		{
+			return store.getInt(getPageEntryOffset(index));
+		}
+
+		private String getPageName(int index)
+		{
+			return readString(store, sectionOffset, store.getInt(getPageEntryOffset(index) + 4));
+		}
+
+		private CollectionLogPage getPage(int index)
+		{
+			String pageName = getPageName(index);
+			int pageOffset = sectionOffset + store.getInt(getPageEntryOffset(index) + 8);
+
+			int flags = store.getInt(pageOffset);
+			int itemCount = store.getInt(pageOffset + 4);
+			int killCountCount = store.getInt(pageOffset + 8);
+
+			int itemsOffset = pageOffset + PAGE_HEADER_SIZE;
+			int obtainedFlagsOffset = itemsOffset + itemCount * ITEM_SIZE;
+			List<CollectionLogItem> items = new ArrayList<>(itemCount);
+			for (int slot = 0; slot < itemCount; slot++)
+			{
+				int itemOffset = itemsOffset + slot * ITEM_SIZE;
+				boolean obtained = (store.get(obtainedFlagsOffset + slot / 8) & (1 << (slot % 8))) != 0;
+				items.add(new CollectionLogItem(
+					store.getInt(itemOffset),
+					readString(store, sectionOffset, store.getInt(itemOffset + 4)),
+					store.getInt(itemOffset + 8),
+					obtained,
+					slot
+				));
+			}
+
+			int killCountsOffset = obtainedFlagsOffset + getObtainedFlagsSize(itemCount);
+			List<CollectionLogKillCount> killCounts = new ArrayList<>(killCountCount);
+			for (int i = 0; i < killCountCount; i++)
+			{
+				int killCountOffset = killCountsOffset + i * KILL_COUNT_SIZE;
+				killCounts.add(new CollectionLogKillCount(
+					readString(store, sectionOffset, store.getInt(killCountOffset)),
+					store.getInt(killCountOffset + 4),
+					i
+				));
+			}
+
+			return new CollectionLogPage(pageName, items, killCounts, (flags & PAGE_FLAG_IS_UPDATED) != 0);
+		}
+	}
+}
@@ -1,7 +1,8 @@
 package com.evansloan.collectionlog;
 
+import com.evansloan.collectionlog.util.CollectionLogTypeAdapter;
+import com.evansloan.collectionlog.util.JsonUtils;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import java.io.IOException;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -33,6 +34,9 @@ public class CollectionLogApiClient
 	@Inject
 	private OkHttpClient okHttpClient;
 
+	@Inject
+	private JsonUtils jsonUtils;
+
 	public void updateUser(String username, String accountType, String accountHash, boolean isFemale, JsonObject userSettings, Callback callback)
 	{
 		HttpUrl url = new HttpUrl.Builder()
@@ -147,7 +151,14 @@ public class CollectionLogApiClient
 		okHttpClient.newCall(request).enqueue(callback);
 	}
 
-	public JsonObject processResponse(Response response) throws IOException
+	/**
+	 * Stream the collection log out of a collection log API response without parsing the body to a JSON tree
+	 *
+	 * @param response API response
+	 * @return Collection log, null if the request failed or the response doesn't contain a collection log
+	 * @throws IOException If the response couldn't be read
+	 */
+	public CollectionLog processCollectionLogResponse(Response response) throws IOException
 	{
 		if (!response.isSuccessful())
 		{
@@ -159,6 +170,6 @@ public class CollectionLogApiClient
 		{
 			return null;
 		}
-		return new JsonParser().parse(resBody.string()).getAsJsonObject();
+		return jsonUtils.readJsonProperty(resBody.charStream(), COLLECTION_LOG_JSON_KEY, new CollectionLogTypeAdapter());
 	}
 }
@@ -0,0 +1,498 @@
+package com.evansloan.collectionlog;
+
+import com.evansloan.collectionlog.util.JsonUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.StructComposition;
+import static net.runelite.client.RuneLite.RUNELITE_DIR;
+import net.runelite.client.game.ItemManager;
+
+/**
+ * Shared catalog of collection log page definitions. Definitions are built from the game cache
+ * and reused by every loaded account's collection log, so page names, item IDs and item names
+ * are only held in memory once
+ */
+@Slf4j
+@Singleton
+public class CollectionLogCatalog
+{
+	private static final List<Integer> COLLECTION_LOG_TAB_STRUCT_IDS = ImmutableList.of(
+		471, // Bosses
+		472, // Raids
+		473, // Clues
+		474, // Minigames
+		475  // Other
+	);
+	private static final int COLLECTION_LOG_TAB_NAME_PARAM_ID = 682;
+	private static final int COLLECTION_LOG_TAB_ENUM_PARAM_ID = 683;
+	private static final int COLLECTION_LOG_PAGE_NAME_PARAM_ID = 689;
+	private static final int COLLECTION_LOG_PAGE_ITEMS_ENUM_PARAM_ID = 690;
+	private static final int COLLECTION_LOG_KILL_COUNT_SCRIPT_ID = 2735;
+
+	private static final File COLLECTION_LOG_CATALOG_FILE = new File(new File(RUNELITE_DIR, "collectionlog"), "catalog.json");
+
+	/*
+	 * Map of item IDs that differ in page items struct vs ID on item widget in the collection log
+	 * Both IDs are valid, but causes duplicates on site
+	 *
+	 * Key: Page struct item ID
+	 * Value: Item widget item ID
+	 */
+	private static final Map<Integer, Integer> ITEM_ID_MAP = new ImmutableMap.Builder<Integer, Integer>()
+		.put(10859, 25617) // Tea flask
+		.put(10877, 25618) // Red satchel
+		.put(10878, 25619) // Green satchel
+		.put(10879, 25620) // Red satchel
+		.put(10880, 25621) // Black satchel
+		.put(10881, 25622) // Gold satchel
+		.put(10882, 25623) // Rune satchel
+		.put(13273, 25624) // Unsired
+		.put(12019, 25627) // Coal bag
+		.put(12020, 25628) // Gem bag
+		.put(24882, 25629) // Plank sack
+		.put(12854, 25630) // Flamtaer bag
+		.build();
+
+	/*
+	 * Tab names to page definitions in game cache order. Empty until loaded from the game cache
+	 */
+	private Map<String, List<CollectionLogPageDefinition>> tabs = Collections.emptyMap();
+
+	/*
+	 * Page names to the current definition of each page
+	 */
+	private final Map<String, CollectionLogPageDefinition> pageDefinitions = new HashMap<>();
+
+	/*
+	 * Catalog read from disk, used instead of the game cache while the game cache is unchanged
+	 */
+	private CatalogFile catalogFile;
+
+	/*
+	 * Game cache read in progress, only accessed on the client thread
+	 */
+	private GameCacheLoad gameCacheLoad;
+
+	@Inject
+	private Client client;
+
+	@Inject
+	private ItemManager itemManager;
+
+	@Inject
+	private ScheduledExecutorService executor;
+
+	@Inject
+	private JsonUtils jsonUtils;
+
+	public synchronized boolean isLoaded()
+	{
+		return !tabs.isEmpty();
+	}
+
+	public synchronized Map<String, List<CollectionLogPageDefinition>> getTabs()
+	{
+		return tabs;
+	}
+
+	/**
+	 * Read the catalog saved by a previous session. Should be called off the client thread before {@link #load(int, long)}
+	 */
+	public void loadCatalogFile()
+	{
+		if (!COLLECTION_LOG_CATALOG_FILE.exists())
+		{
+			return;
+		}
+
+		CatalogFile loadedCatalogFile = jsonUtils.readJsonFile(COLLECTION_LOG_CATALOG_FILE.getPath(), CatalogFile.class);
+		if (loadedCatalogFile == null || loadedCatalogFile.tabs == null)
+		{
+			return;
+		}
+
+		synchronized (this)
+		{
+			catalogFile = loadedCatalogFile;
+			if (tabs.isEmpty())
+			{
+				// Register saved definitions so save files loaded before the game cache share them
+				for (CatalogFile.Tab tab : loadedCatalogFile.tabs)
+				{
+					for (CatalogFile.Page page : tab.pages)
+					{
+						pageDefinitions.putIfAbsent(page.name, page.toDefinition());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build page definitions for all collection log tabs, using the saved catalog if the game cache
+	 * is unchanged since it was written, otherwise reading the game cache a page at a time until the
+	 * time budget is used. Must be called on the client thread, repeatedly until it returns true
+	 *
+	 * @param firstTabIndex Index of the tab to read from the game cache first
+	 * @param budgetNanos Time allowed for this call in nanoseconds
+	 * @return Whether the catalog is loaded
+	 */
+	public boolean load(int firstTabIndex, long budgetNanos)
+	{
+		if (isLoaded())
+		{
+			return true;
+		}
+
+		long start = System.nanoTime();
+
+		if (gameCacheLoad == null)
+		{
+			int revision = client.getRevision();
+			int fingerprint = getTabsFingerprint();
+
+			CatalogFile savedCatalogFile;
+			synchronized (this)
+			{
+				savedCatalogFile = catalogFile;
+			}
+
+			if (savedCatalogFile != null && savedCatalogFile.revision == revision && savedCatalogFile.fingerprint == fingerprint)
+			{
+				setTabs(savedCatalogFile.toTabs());
+				return true;
+			}
+
+			gameCacheLoad = new GameCacheLoad(revision, fingerprint, firstTabIndex);
+		}
+
+		do
+		{
+			gameCacheLoad.loadNextPage();
+		}
+		while (!gameCacheLoad.isComplete() && System.nanoTime() - start < budgetNanos);
+
+		if (!gameCacheLoad.isComplete())
+		{
+			return false;
+		}
+
+		Map<String, List<CollectionLogPageDefinition>> loadedTabs = gameCacheLoad.getTabs();
+		CatalogFile newCatalogFile = CatalogFile.fromTabs(gameCacheLoad.revision, gameCacheLoad.fingerprint, loadedTabs);
+		gameCacheLoad = null;
+
+		setTabs(loadedTabs);
+		executor.execute(() -> saveCatalogFile(newCatalogFile));
+		return true;
+	}
+
+	private synchronized void setTabs(Map<String, List<CollectionLogPageDefinition>> loadedTabs)
+	{
+		for (List<CollectionLogPageDefinition> tabPages : loadedTabs.values())
+		{
+			for (CollectionLogPageDefinition pageDefinition : tabPages)
+			{
+				pageDefinitions.put(pageDefinition.getName(), pageDefinition);
+			}
+		}
+		tabs = loadedTabs;
+	}
+
+	private void saveCatalogFile(CatalogFile newCatalogFile)
+	{
+		COLLECTION_LOG_CATALOG_FILE.getParentFile().mkdirs();
+		jsonUtils.writeJsonFile(COLLECTION_LOG_CATALOG_FILE.getPath(), newCatalogFile);
+
+		synchronized (this)
+		{
+			catalogFile = newCatalogFile;
+		}
+	}
+
+	/**
+	 * Hash the pages of every tab with each page's name and item IDs. Catches pages added, removed or
+	 * changed without a client revision change, using only enum and struct lookups
+	 */
+	private int getTabsFingerprint()
+	{
+		int fingerprint = 1;
+		for (Integer structId : COLLECTION_LOG_TAB_STRUCT_IDS)
+		{
+			StructComposition tabStruct = client.getStructComposition(structId);
+			int tabEnumId = tabStruct.getIntValue(COLLECTION_LOG_TAB_ENUM_PARAM_ID);
+			for (int pageStructId : client.getEnum(tabEnumId).getIntVals())
+			{
+				StructComposition pageStruct = client.getStructComposition(pageStructId);
+				int pageItemsEnumId = pageStruct.getIntValue(COLLECTION_LOG_PAGE_ITEMS_ENUM_PARAM_ID);
+				fingerprint = 31 * fingerprint + pageStructId;
+				fingerprint = 31 * fingerprint + Objects.hashCode(pageStruct.getStringValue(COLLECTION_LOG_PAGE_NAME_PARAM_ID));
+				fingerprint = 31 * fingerprint + Arrays.hashCode(client.getEnum(pageItemsEnumId).getIntVals());
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Build the definition of a page from the game cache
+	 *
+	 * @param pageStructId Struct ID of the page
+	 * @return Page definition
+	 */
+	private CollectionLogPageDefinition loadPageDefinition(int pageStructId)
+	{
+		StructComposition pageStruct = client.getStructComposition(pageStructId);
+		String pageName = pageStruct.getStringValue(COLLECTION_LOG_PAGE_NAME_PARAM_ID);
+		int pageItemsEnumId = pageStruct.getIntValue(COLLECTION_LOG_PAGE_ITEMS_ENUM_PARAM_ID);
+		int[] pageItemIds = client.getEnum(pageItemsEnumId).getIntVals();
+
+		int[] itemIds = new int[pageItemIds.length];
+		String[] itemNames = new String[pageItemIds.length];
+		for (int i = 0; i < pageItemIds.length; i++)
+		{
+			ItemComposition itemComposition = itemManager.getItemComposition(pageItemIds[i]);
+			itemIds[i] = ITEM_ID_MAP.getOrDefault(itemComposition.getId(), itemComposition.getId());
+			itemNames[i] = itemComposition.getMembersName();
+		}
+
+		return new CollectionLogPageDefinition(pageName, itemIds, itemNames, getKillCountNames(pageStruct.getId()));
+	}
+
+	/**
+	 * Run script to get available kill count names. Amounts are set in var2048 which isn't set unless
+	 * pages are manually opened in-game.
+	 *
+	 * https://github.com/Joshua-F/cs2-scripts/blob/master/scripts/%5Bproc,collection_category_count%5D.cs2
+	 */
+	private List<String> getKillCountNames(int pageStructId)
+	{
+		client.runScript(COLLECTION_LOG_KILL_COUNT_SCRIPT_ID, pageStructId);
+		String[] stringStack = client.getStringStack();
+
+		// Kill counts are pushed to the string stack in reverse order
+		List<String> killCountNames = new ArrayList<>(3);
+		for (int i = 2; i >= 0; i--)
+		{
+			String killCountString = stringStack[i];
+			if (killCountString.isEmpty())
+			{
+				continue;
+			}
+			killCountNames.add(CollectionLogKillCount.parseName(killCountString));
+		}
+		return killCountNames;
+	}
+
+	/**
+	 * Get the shared definition for a page, creating one if the page's items don't match
+	 * the current definition
+	 *
+	 * @param pageName Name of the page
+	 * @param itemIds Item IDs in page order
+	 * @param itemNames Item names in page order
+	 * @param itemSequences Item sequences in page order, null if each item's sequence is its position
+	 * @return Shared page definition
+	 */
+	public synchronized CollectionLogPageDefinition getPageDefinition(String pageName, int[] itemIds, String[] itemNames, int[] itemSequences)
+	{
+		CollectionLogPageDefinition pageDefinition = pageDefinitions.get(pageName);
+		if (pageDefinition != null && pageDefinition.matches(pageName, itemIds, itemNames, itemSequences))
+		{
+			return pageDefinition;
+		}
+
+		List<String> killCountNames = pageDefinition == null ? Collections.emptyList() : pageDefinition.getKillCountNames();
+		CollectionLogPageDefinition newPageDefinition = new CollectionLogPageDefinition(pageName, itemIds, itemNames, itemSequences, killCountNames);
+
+		// Definitions from the game cache take priority over definitions from save files or the item widgets
+		if (pageDefinition == null)
+		{
+			pageDefinitions.put(pageName, newPageDefinition);
+		}
+		return newPageDefinition;
+	}
+
+	/**
+	 * Reads the collection log from the game cache one page at a time, starting with a chosen tab.
+	 * Based off cs2 scripts
+	 * <a href="https://github.com/Joshua-F/cs2-scripts/blob/master/scripts/%5Bproc,collection_draw_list%5D.cs2">2731 proc_collection_draw_list</a>
+	 * and
+	 * <a href="https://github.com/Joshua-F/cs2-scripts/blob/master/scripts/%5Bproc,collection_draw_log%5D.cs2">2732 proc_collection_draw_log</a>
+	 */
+	private class GameCacheLoad
+	{
+		private final int revision;
+		private final int fingerprint;
+
+		/*
+		 * Indexes into COLLECTION_LOG_TAB_STRUCT_IDS in load order
+		 */
+		private final int[] tabOrder;
+		private final String[] tabNames;
+		private final List<List<CollectionLogPageDefinition>> tabPages;
+
+		private int tabPosition;
+		private int[] pageStructIds;
+		private int pageIndex;
+
+		private GameCacheLoad(int revision, int fingerprint, int firstTabIndex)
+		{
+			this.revision = revision;
+			this.fingerprint = fingerprint;
+
+			int tabCount = COLLECTION_LOG_TAB_STRUCT_IDS.size();
+			if (firstTabIndex < 0 || firstTabIndex >= tabCount)
+			{
+				firstTabIndex = 0;
+			}
+
+			tabOrder = new int[tabCount];
+			tabOrder[0] = firstTabIndex;
+			for (int i = 0, position = 1; i < tabCount; i++)
+			{
+				if (i != firstTabIndex)
+				{
+					tabOrder[position++] = i;
+				}
+			}
+
+			tabNames = new String[tabCount];
+			tabPages = new ArrayList<>(Collections.nCopies(tabCount, null));
+		}
+
+		private boolean isComplete()
+		{
+			return tabPosition >= tabOrder.length;
+		}
+
+		private void loadNextPage()
+		{
+			int tabIndex = tabOrder[tabPosition];
+
+			if (pageStructIds == null)
+			{
+				StructComposition tabStruct = client.getStructComposition(COLLECTION_LOG_TAB_STRUCT_IDS.get(tabIndex));
+				int tabEnumId = tabStruct.getIntValue(COLLECTION_LOG_TAB_ENUM_PARAM_ID);
+				tabNames[tabIndex] = tabStruct.getStringValue(COLLECTION_LOG_TAB_NAME_PARAM_ID);
+				pageStructIds = client.getEnum(tabEnumId).getIntVals();
+				tabPages.set(tabIndex, new ArrayList<>(pageStructIds.length));
+				pageIndex = 0;
+			}
+
+			if (pageIndex < pageStructIds.length)
+			{
+				tabPages.get(tabIndex).add(loadPageDefinition(pageStructIds[pageIndex]));
+				pageIndex++;
+			}
+
+			if (pageIndex >= pageStructIds.length)
+			{
+				pageStructIds = null;
+				tabPosition++;
+			}
+		}
+
+		private Map<String, List<CollectionLogPageDefinition>> getTabs()
+		{
+			Map<String, List<CollectionLogPageDefinition>> loadedTabs = new LinkedHashMap<>();
+			for (int i = 0; i < tabNames.length; i++)
+			{
+				loadedTabs.put(tabNames[i], tabPages.get(i));
+			}
+			return loadedTabs;
+		}
+	}
+
+	/**
+	 * On disk format of the catalog, keyed by the client revision and tab fingerprint it was built from
+	 */
+	private static class CatalogFile
+	{
+		private int revision;
+		private int fingerprint;
+		private List<Tab> tabs;
+
+		private static class Tab
+		{
+			private String name;
+			private List<Page> pages;
+		}
+
+		private static class Page
+		{
+			private String name;
+			private int[] itemIds;
+			private String[] itemNames;
+			private List<String> killCountNames;
+
+			private CollectionLogPageDefinition toDefinition()
+			{
+				return new CollectionLogPageDefinition(name, itemIds, itemNames, killCountNames);
+			}
+		}
+
+		private static CatalogFile fromTabs(int revision, int fingerprint, Map<String, List<CollectionLogPageDefinition>> tabs)
+		{
+			CatalogFile catalogFile = new CatalogFile();
+			catalogFile.revision = revision;
+			catalogFile.fingerprint = fingerprint;
+			catalogFile.tabs = new ArrayList<>();
+
+			for (Map.Entry<String, List<CollectionLogPageDefinition>> tabEntry : tabs.entrySet())
+			{
+				Tab tab = new Tab();
+				tab.name = tabEntry.getKey();
+				tab.pages = new ArrayList<>();
+
+				for (CollectionLogPageDefinition pageDefinition : tabEntry.getValue())
+				{
+					int itemCount = pageDefinition.getItemCount();
+					Page page = new Page();
+					page.name = pageDefinition.getName();
+					page.itemIds = new int[itemCount];
+					page.itemNames = new String[itemCount];
+					for (int i = 0; i < itemCount; i++)
+					{
+						page.itemIds[i] = pageDefinition.getItemId(i);
+						page.itemNames[i] = pageDefinition.getItemName(i);
+					}
+					page.killCountNames = pageDefinition.getKillCountNames();
+					tab.pages.add(page);
+				}
+
+				catalogFile.tabs.add(tab);
+			}
+
+			return catalogFile;
+		}
+
+		private Map<String, List<CollectionLogPageDefinition>> toTabs()
+		{
+			Map<String, List<CollectionLogPageDefinition>> loadedTabs = new LinkedHashMap<>();
+			for (Tab tab : tabs)
+			{
+				List<CollectionLogPageDefinition> tabPages = new ArrayList<>(tab.pages.size());
+				for (Page page : tab.pages)
+				{
+					tabPages.add(page.toDefinition());
+				}
+				loadedTabs.put(tab.name, tabPages);
+			}
+			return loadedTabs;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
+import net.runelite.client.config.Range;
 
 @ConfigGroup("collectionlog")
 public interface CollectionLogConfig extends Config
@@ -164,4 +165,70 @@ public interface CollectionLogConfig extends Config
 	{
 		return true;
 	}
+
+	@ConfigItem(
+		keyName = "export_format",
+		name = "Export format",
+		description = "File format of collection log exports. CSV writes one row per item, NDJSON one line per page",
+		position = 3,
+		section = exportingSection
+	)
+	default CollectionLogExportFormat exportFormat()
+	{
+		return CollectionLogExportFormat.JSON;
+	}
+
+	@ConfigItem(
+		keyName = "compress_files",
+		name = "Compress saves and exports",
+		description = "Gzip collection log save files and exports to reduce disk use. Exports are written with a .gz extension",
+		position = 4,
+		section = exportingSection
+	)
+	default boolean compressFiles()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "snapshot_exports",
+		name = "Export as snapshots",
+		description = "Store exports as snapshots that share unchanged pages with earlier snapshots, and take a snapshot on each log out. Snapshots are exported in the export format from the Export snapshot menu",
+		position = 5,
+		section = exportingSection
+	)
+	default boolean snapshotExports()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "snapshot_keep_latest",
+		name = "Latest snapshots to keep",
+		description = "Number of most recent snapshots to keep",
+		position = 6,
+		section = exportingSection
+	)
+	@Range(
+		min = 1
+	)
+	default int snapshotKeepLatest()
+	{
+		return 20;
+	}
+
+	@ConfigItem(
+		keyName = "snapshot_keep_daily_days",
+		name = "Days to keep daily snapshots",
+		description = "Keep the last snapshot of each day for this many days",
+		position = 7,
+		section = exportingSection
+	)
+	@Range(
+		min = 1
+	)
+	default int snapshotKeepDailyDays()
+	{
+		return 90;
+	}
 }
@@ -0,0 +1,38 @@
+package com.evansloan.collectionlog;
+
+import com.evansloan.collectionlog.util.CollectionLogExporter;
+import com.evansloan.collectionlog.util.CsvCollectionLogExporter;
+import com.evansloan.collectionlog.util.JsonCollectionLogExporter;
+import com.evansloan.collectionlog.util.NdjsonCollectionLogExporter;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+public enum CollectionLogExportFormat
+{
+	JSON("JSON", "json", JsonCollectionLogExporter::new),
+	CSV("CSV", "csv", CsvCollectionLogExporter::new),
+	NDJSON("NDJSON", "ndjson", NdjsonCollectionLogExporter::new);
+
+	private final String displayName;
+
+	/*
+	 * File extension of the export format, without a leading dot
+	 */
+	@Getter
+	private final String fileExtension;
+
+	private final Supplier<CollectionLogExporter> exporterSupplier;
+
+	public CollectionLogExporter createExporter()
+	{
+		return exporterSupplier.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return displayName;
+	}
+}
@@ -0,0 +1,670 @@
+package com.evansloan.collectionlog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only history of collection log progress per account. Only item quantity, obtained and kill count
+ * changes are stored, as deltas from the previous value with timestamps relative to the previous entry.
+ *
+ * <pre>
+ * magic "CLHS", version byte, then tagged entries:
+ * string:     tag, varint UTF-8 length + bytes, numbered in order of appearance
+ * time:       tag, zigzag varint seconds since the previous time entry
+ * item:       tag (obtained or not), varint page name, varint item ID, zigzag varint quantity delta
+ * kill count: tag, varint page name, varint kill count name, zigzag varint amount delta
+ * </pre>
+ *
+ * The history of one account is decoded into memory on first use and indexed by time and page, so progress at
+ * a date and page timelines are answered without rereading the file. Progress is checkpointed every
+ * {@value #CHECKPOINT_INTERVAL} entries as it's computed, so later lookups replay from the nearest checkpoint
+ */
+@Slf4j
+@Singleton
+public class CollectionLogHistory
+{
+	private static final byte[] MAGIC = {'C', 'L', 'H', 'S'};
+	private static final int VERSION = 1;
+
+	private static final int TAG_STRING = 0;
+	private static final int TAG_TIME = 1;
+	private static final int TAG_ITEM = 2;
+	private static final int TAG_ITEM_OBTAINED = 3;
+	private static final int TAG_KILL_COUNT = 4;
+
+	private static final int CHECKPOINT_INTERVAL = 1024;
+
+	@Inject
+	CollectionLogManager collectionLogManager;
+
+	/*
+	 * Decoded history of the last account used. Guarded by this
+	 */
+	private AccountHistory loadedHistory;
+
+	/**
+	 * Record the changes in a page since the page was last recorded
+	 *
+	 * @param username Username of the account
+	 * @param timestamp Time of the change in epoch milliseconds
+	 * @param page Page snapshot to record
+	 */
+	public synchronized void recordPage(String username, long timestamp, CollectionLogPage page)
+	{
+		AccountHistory history = getHistory(username);
+		if (history == null)
+		{
+			return;
+		}
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		try
+		{
+			int pageId = history.getStringId(page.getName(), out);
+			long time = timestamp / 1000;
+			boolean isTimeWritten = false;
+
+			CollectionLogPageDefinition definition = page.getDefinition();
+			for (int slot = 0; slot < definition.getItemCount(); slot++)
+			{
+				int itemId = definition.getItemId(slot);
+				int quantity = page.getItemQuantity(slot);
+				boolean obtained = page.isItemObtained(slot);
+
+				int lastEntry = history.getLastItemEntry(pageId, itemId);
+				int lastQuantity = lastEntry == -1 ? 0 : history.values[lastEntry];
+				boolean lastObtained = lastEntry != -1 && history.kinds[lastEntry] == TAG_ITEM_OBTAINED;
+				if (quantity == lastQuantity && obtained == lastObtained)
+				{
+					continue;
+				}
+
+				if (!isTimeWritten)
+				{
+					history.writeTime(time, out);
+					isTimeWritten = true;
+				}
+
+				int tag = obtained ? TAG_ITEM_OBTAINED : TAG_ITEM;
+				out.writeByte(tag);
+				writeVarInt(out, pageId);
+				writeVarInt(out, itemId);
+				writeVarInt(out, zigzagEncode(quantity - lastQuantity));
+				history.addEntry(tag, time, pageId, itemId, quantity);
+			}
+
+			for (CollectionLogKillCount killCount : page.getKillCounts())
+			{
+				int nameId = history.getStringId(killCount.getName(), out);
+				int lastEntry = history.getLastKillCountEntry(pageId, nameId);
+				int lastAmount = lastEntry == -1 ? 0 : history.values[lastEntry];
+				if (killCount.getAmount() == lastAmount)
+				{
+					continue;
+				}
+
+				if (!isTimeWritten)
+				{
+					history.writeTime(time, out);
+					isTimeWritten = true;
+				}
+
+				out.writeByte(TAG_KILL_COUNT);
+				writeVarInt(out, pageId);
+				writeVarInt(out, nameId);
+				writeVarInt(out, zigzagEncode(killCount.getAmount() - lastAmount));
+				history.addEntry(TAG_KILL_COUNT, time, pageId, nameId, killCount.getAmount());
+			}
+		}
+		catch (IOException e)
+		{
+			// Writes to a byte array don't fail
+			throw new IllegalStateException(e);
+		}
+
+		if (buffer.size() == 0)
+		{
+			return;
+		}
+
+		try (FileOutputStream file = new FileOutputStream(history.file, true))
+		{
+			buffer.writeTo(file);
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to write collection log history at path: " + history.file.getPath() + "\n" + e.getMessage());
+			// The decoded history now has entries the file doesn't, decode the file again on next use
+			loadedHistory = null;
+		}
+	}
+
+	/**
+	 * Get an account's progress as it was at a point in time
+	 *
+	 * @param username Username of the account
+	 * @param timestamp Time in epoch milliseconds
+	 * @return Progress including every change up to and including the time
+	 */
+	public synchronized Progress getProgressAt(String username, long timestamp)
+	{
+		AccountHistory history = getHistory(username);
+		if (history == null)
+		{
+			return new Progress();
+		}
+
+		int end = history.getEntryCountUntil(timestamp / 1000);
+		int checkpoint = Math.min(end / CHECKPOINT_INTERVAL, history.checkpoints.size());
+		Progress progress = checkpoint == 0 ? new Progress() : history.checkpoints.get(checkpoint - 1).copy();
+		for (int i = checkpoint * CHECKPOINT_INTERVAL; i < end; i++)
+		{
+			progress.addEntry(history, i);
+
+			int entryCount = i + 1;
+			if (entryCount % CHECKPOINT_INTERVAL == 0 && entryCount / CHECKPOINT_INTERVAL > history.checkpoints.size())
+			{
+				history.checkpoints.add(progress.copy());
+			}
+		}
+
+		return progress;
+	}
+
+	/**
+	 * Get the changes made to a page within a time range
+	 *
+	 * @param username Username of the account
+	 * @param pageName Name of the page
+	 * @param from Start of the range in epoch milliseconds, inclusive
+	 * @param to End of the range in epoch milliseconds, inclusive
+	 * @return Changes in the order they were made
+	 */
+	public synchronized List<Change> getPageTimeline(String username, String pageName, long from, long to)
+	{
+		AccountHistory history = getHistory(username);
+		if (history == null)
+		{
+			return Collections.emptyList();
+		}
+
+		Integer pageId = history.stringIds.get(pageName);
+		if (pageId == null)
+		{
+			return Collections.emptyList();
+		}
+
+		EntryList pageEntries = history.pageEntries.get(pageId);
+		if (pageEntries == null)
+		{
+			return Collections.emptyList();
+		}
+
+		// Page entries are in time order, find the first entry in range and walk forward
+		long fromTime = from / 1000;
+		long toTime = to / 1000;
+		int low = 0;
+		int high = pageEntries.size;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (history.times[pageEntries.entries[middle]] < fromTime)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		List<Change> timeline = new ArrayList<>();
+		for (int i = low; i < pageEntries.size && history.times[pageEntries.entries[i]] <= toTime; i++)
+		{
+			int entry = pageEntries.entries[i];
+			boolean isKillCount = history.kinds[entry] == TAG_KILL_COUNT;
+			timeline.add(new Change(
+				history.times[entry] * 1000,
+				pageName,
+				isKillCount ? -1 : history.keys[entry],
+				isKillCount ? history.strings.get(history.keys[entry]) : null,
+				history.values[entry],
+				history.kinds[entry] == TAG_ITEM_OBTAINED
+			));
+		}
+
+		return timeline;
+	}
+
+	/**
+	 * Delete an account's history file
+	 *
+	 * @param username Username of the account
+	 */
+	public synchronized void deleteHistory(String username)
+	{
+		if (loadedHistory != null && loadedHistory.username.equals(username))
+		{
+			loadedHistory = null;
+		}
+
+		File file = new File(collectionLogManager.getHistoryFilePath(username));
+		if (file.exists() && !file.delete())
+		{
+			log.error("Unable to delete collection log history at path: " + file.getPath());
+		}
+	}
+
+	private AccountHistory getHistory(String username)
+	{
+		if (username == null)
+		{
+			return null;
+		}
+
+		if (loadedHistory == null || !loadedHistory.username.equals(username))
+		{
+			loadedHistory = readHistory(username, new File(collectionLogManager.getHistoryFilePath(username)));
+		}
+		return loadedHistory;
+	}
+
+	private AccountHistory readHistory(String username, File file)
+	{
+		AccountHistory history = new AccountHistory(username, file);
+		try
+		{
+			if (!file.exists() || file.length() == 0)
+			{
+				try (FileOutputStream out = new FileOutputStream(file))
+				{
+					out.write(MAGIC);
+					out.write(VERSION);
+				}
+				return history;
+			}
+
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			if (bytes.length < MAGIC.length + 1
+				|| !Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)
+				|| bytes[MAGIC.length] != VERSION)
+			{
+				log.error("Unable to read collection log history at path: " + file.getPath());
+				return null;
+			}
+
+			int position = history.decode(bytes, MAGIC.length + 1);
+			if (position < bytes.length)
+			{
+				// Drop a partially written last entry so new entries aren't appended after it
+				log.warn("Truncating incomplete collection log history at path: " + file.getPath());
+				try (RandomAccessFile truncatedFile = new RandomAccessFile(file, "rw"))
+				{
+					truncatedFile.setLength(position);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to read collection log history at path: " + file.getPath() + "\n" + e.getMessage());
+			return null;
+		}
+
+		return history;
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int zigzagEncode(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int zigzagDecode(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Decoded history of one account. Entries are stored in parallel arrays holding absolute values
+	 */
+	private static class AccountHistory
+	{
+		private final String username;
+		private final File file;
+
+		private final List<String> strings = new ArrayList<>();
+		private final Map<String, Integer> stringIds = new HashMap<>();
+		private long lastTime;
+
+		private int size;
+		private int[] kinds = new int[64];
+		private long[] times = new long[64];
+		private int[] pageIds = new int[64];
+		private int[] keys = new int[64];
+		private int[] values = new int[64];
+
+		private final Map<Integer, EntryList> pageEntries = new HashMap<>();
+		private final Map<Long, Integer> lastItemEntries = new HashMap<>();
+		private final Map<Long, Integer> lastKillCountEntries = new HashMap<>();
+
+		/*
+		 * Progress after each multiple of CHECKPOINT_INTERVAL entries, added as progress is computed
+		 */
+		private final List<Progress> checkpoints = new ArrayList<>();
+
+		private AccountHistory(String username, File file)
+		{
+			this.username = username;
+			this.file = file;
+		}
+
+		private int getStringId(String string, DataOutputStream out) throws IOException
+		{
+			Integer stringId = stringIds.get(string);
+			if (stringId != null)
+			{
+				return stringId;
+			}
+
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeByte(TAG_STRING);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+			return addString(string);
+		}
+
+		private int addString(String string)
+		{
+			stringIds.put(string, strings.size());
+			strings.add(string);
+			return strings.size() - 1;
+		}
+
+		private void writeTime(long time, DataOutputStream out) throws IOException
+		{
+			if (time == lastTime)
+			{
+				return;
+			}
+
+			out.writeByte(TAG_TIME);
+			writeVarInt(out, zigzagEncode((int) (time - lastTime)));
+			lastTime = time;
+		}
+
+		private int getLastItemEntry(int pageId, int itemId)
+		{
+			return lastItemEntries.getOrDefault(getEntryKey(pageId, itemId), -1);
+		}
+
+		private int getLastKillCountEntry(int pageId, int nameId)
+		{
+			return lastKillCountEntries.getOrDefault(getEntryKey(pageId, nameId), -1);
+		}
+
+		private void addEntry(int kind, long time, int pageId, int key, int value)
+		{
+			if (size == times.length)
+			{
+				kinds = Arrays.copyOf(kinds, size * 2);
+				times = Arrays.copyOf(times, size * 2);
+				pageIds = Arrays.copyOf(pageIds, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+
+			kinds[size] = kind;
+			times[size] = time;
+			pageIds[size] = pageId;
+			keys[size] = key;
+			values[size] = value;
+
+			pageEntries.computeIfAbsent(pageId, k -> new EntryList()).add(size);
+			if (kind == TAG_KILL_COUNT)
+			{
+				lastKillCountEntries.put(getEntryKey(pageId, key), size);
+			}
+			else
+			{
+				lastItemEntries.put(getEntryKey(pageId, key), size);
+			}
+			size++;
+		}
+
+		/**
+		 * Get the number of entries recorded at or before a time. Entries are appended in time order,
+		 * unless the system clock went backwards
+		 */
+		private int getEntryCountUntil(long time)
+		{
+			int low = 0;
+			int high = size;
+			while (low < high)
+			{
+				int middle = (low + high) >>> 1;
+				if (times[middle] <= time)
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Decode entries from history file contents
+		 *
+		 * @return Position after the last complete entry
+		 */
+		private int decode(byte[] bytes, int position)
+		{
+			int[] cursor = {position};
+			int entryStart = position;
+			try
+			{
+				while (cursor[0] < bytes.length)
+				{
+					entryStart = cursor[0];
+					int tag = bytes[cursor[0]++];
+					switch (tag)
+					{
+						case TAG_STRING:
+							int length = readVarInt(bytes, cursor);
+							if (cursor[0] + length > bytes.length)
+							{
+								return entryStart;
+							}
+							addString(new String(bytes, cursor[0], length, StandardCharsets.UTF_8));
+							cursor[0] += length;
+							break;
+						case TAG_TIME:
+							lastTime += zigzagDecode(readVarInt(bytes, cursor));
+							break;
+						case TAG_ITEM:
+						case TAG_ITEM_OBTAINED:
+						{
+							int pageId = readVarInt(bytes, cursor);
+							int itemId = readVarInt(bytes, cursor);
+							int delta = zigzagDecode(readVarInt(bytes, cursor));
+							int lastEntry = getLastItemEntry(pageId, itemId);
+							addEntry(tag, lastTime, pageId, itemId, (lastEntry == -1 ? 0 : values[lastEntry]) + delta);
+							break;
+						}
+						case TAG_KILL_COUNT:
+						{
+							int pageId = readVarInt(bytes, cursor);
+							int nameId = readVarInt(bytes, cursor);
+							int delta = zigzagDecode(readVarInt(bytes, cursor));
+							int lastEntry = getLastKillCountEntry(pageId, nameId);
+							addEntry(tag, lastTime, pageId, nameId, (lastEntry == -1 ? 0 : values[lastEntry]) + delta);
+							break;
+						}
+						default:
+							return entryStart;
+					}
+				}
+			}
+			catch (ArrayIndexOutOfBoundsException e)
+			{
+				return entryStart;
+			}
+
+			return cursor[0];
+		}
+
+		private static int readVarInt(byte[] bytes, int[] cursor)
+		{
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7)
+			{
+				int b = bytes[cursor[0]++];
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+				{
+					break;
+				}
+			}
+			return value;
+		}
+
+		private static long getEntryKey(int pageId, int key)
+		{
+			return ((long) pageId << 32) | (key & 0xFFFFFFFFL);
+		}
+	}
+
+	/**
+	 * Growable list of entry positions
+	 */
+	private static class EntryList
+	{
+		private int[] entries = new int[8];
+		private int size;
+
+		private void add(int entry)
+		{
+			if (size == entries.length)
+			{
+				entries = Arrays.copyOf(entries, size * 2);
+			}
+			entries[size++] = entry;
+		}
+	}
+
+	/**
+	 * An account's item quantities, obtained items and kill counts by page at a point in time
+	 */
+	public static class Progress
+	{
+		private final Map<String, Map<Integer, Integer>> itemQuantities = new HashMap<>();
+		private final Map<String, Set<Integer>> obtainedItems = new HashMap<>();
+		private final Map<String, Map<String, Integer>> killCounts = new HashMap<>();
+
+		private void addEntry(AccountHistory history, int entry)
+		{
+			String pageName = history.strings.get(history.pageIds[entry]);
+			int key = history.keys[entry];
+			if (history.kinds[entry] == TAG_KILL_COUNT)
+			{
+				killCounts.computeIfAbsent(pageName, k -> new HashMap<>()).put(history.strings.get(key), history.values[entry]);
+				return;
+			}
+
+			itemQuantities.computeIfAbsent(pageName, k -> new HashMap<>()).put(key, history.values[entry]);
+			Set<Integer> pageObtainedItems = obtainedItems.computeIfAbsent(pageName, k -> new HashSet<>());
+			if (history.kinds[entry] == TAG_ITEM_OBTAINED)
+			{
+				pageObtainedItems.add(key);
+			}
+			else
+			{
+				pageObtainedItems.remove(key);
+			}
+		}
+
+		private Progress copy()
+		{
+			Progress progress = new Progress();
+			itemQuantities.forEach((pageName, quantities) -> progress.itemQuantities.put(pageName, new HashMap<>(quantities)));
+			obtainedItems.forEach((pageName, items) -> progress.obtainedItems.put(pageName, new HashSet<>(items)));
+			killCounts.forEach((pageName, amounts) -> progress.killCounts.put(pageName, new HashMap<>(amounts)));
+			return progress;
+		}
+
+		public int getItemQuantity(String pageName, int itemId)
+		{
+			return itemQuantities.getOrDefault(pageName, Collections.emptyMap()).getOrDefault(itemId, 0);
+		}
+
+		public boolean isItemObtained(String pageName, int itemId)
+		{
+			return obtainedItems.getOrDefault(pageName, Collections.emptySet()).contains(itemId);
+		}
+
+		public int getKillCount(String pageName, String killCountName)
+		{
+			return killCounts.getOrDefault(pageName, Collections.emptyMap()).getOrDefault(killCountName, 0);
+		}
+
+		/**
+		 * Get the number of unique items obtained, counting items that appear in several pages once
+		 */
+		public int getUniqueObtained()
+		{
+			Set<Integer> uniqueItems = new HashSet<>();
+			for (Set<Integer> pageItems : obtainedItems.values())
+			{
+				uniqueItems.addAll(pageItems);
+			}
+			return uniqueItems.size();
+		}
+	}
+
+	/**
+	 * A change to a page's item or kill count. Item changes have a kill count name of null,
+	 * kill count changes have an item ID of -1
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static class Change
+	{
+		private final long timestamp;
+		private final String pageName;
+		private final int itemId;
+		private final String killCountName;
+		private final int value;
+		private final boolean obtained;
+	}
+}
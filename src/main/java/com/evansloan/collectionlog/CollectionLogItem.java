@@ -1,17 +1,18 @@
 package com.evansloan.collectionlog;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import net.runelite.api.ItemComposition;
 
+/**
+ * A collection log item. Items returned by {@link CollectionLogPage} are views over the page's
+ * item storage, changes to them are written through to the page
+ */
 @Getter
-@AllArgsConstructor
 public class CollectionLogItem
 {
 
-	@Setter
-    private int id;
+    private final int id;
 
     private final String name;
 
@@ -23,6 +24,15 @@ public class CollectionLogItem
 
     private final int sequence;
 
+    public CollectionLogItem(int id, String name, int quantity, boolean obtained, int sequence)
+    {
+        this.id = id;
+        this.name = name;
+        this.quantity = quantity;
+        this.obtained = obtained;
+        this.sequence = sequence;
+    }
+
     public static CollectionLogItem fromItemComposition(ItemComposition itemComposition, Integer sequence)
     {
         return new CollectionLogItem(
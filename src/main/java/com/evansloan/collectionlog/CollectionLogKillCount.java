@@ -3,7 +3,6 @@ package com.evansloan.collectionlog;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
-import net.runelite.client.util.Text;
 
 @Getter
 @AllArgsConstructor
@@ -14,13 +13,99 @@ public class CollectionLogKillCount
     private int amount;
     private final int sequence;
 
+	private static final String KILL_COUNT_SEPARATOR = ": ";
+
+	/*
+	 * Returned by parseAmount when the kill count text has no valid amount
+	 */
+	public static final int INVALID_AMOUNT = Integer.MIN_VALUE;
+
+	/**
+	 * Create a kill count from kill count widget text
+	 *
+	 * @param killCountString Kill count widget text
+	 * @param sequence Position of the kill count in the page
+	 * @return Kill count, null if the text has no valid amount
+	 */
 	public static CollectionLogKillCount fromString(String killCountString, int sequence)
 	{
-		String[] killCountSplit = killCountString.split(": ");
-		String name = killCountSplit[0];
-		String amount = Text.removeTags(killCountSplit[1])
-			.replace(",", "");
+		int amount = parseAmount(killCountString);
+		if (amount == INVALID_AMOUNT)
+		{
+			return null;
+		}
+		return new CollectionLogKillCount(parseName(killCountString), amount, sequence);
+	}
+
+	/**
+	 * Get the name from kill count widget text, e.g. "Vorkath kills" from "Vorkath kills: <col=ff0000>1,234</col>"
+	 *
+	 * @param killCountString Kill count widget text
+	 * @return Kill count name
+	 */
+	public static String parseName(String killCountString)
+	{
+		int separatorIndex = killCountString.indexOf(KILL_COUNT_SEPARATOR);
+		if (separatorIndex == -1)
+		{
+			return killCountString;
+		}
+		return killCountString.substring(0, separatorIndex);
+	}
+
+	/**
+	 * Parse the amount from kill count widget text in a single pass, skipping tags and digit separators
+	 *
+	 * @param killCountString Kill count widget text
+	 * @return Kill count amount, {@link #INVALID_AMOUNT} if the text has no amount, contains other
+	 * characters or the amount doesn't fit in an int
+	 */
+	public static int parseAmount(String killCountString)
+	{
+		int separatorIndex = killCountString.indexOf(KILL_COUNT_SEPARATOR);
+		if (separatorIndex == -1)
+		{
+			return INVALID_AMOUNT;
+		}
+
+		long amount = 0;
+		boolean hasDigits = false;
+		boolean isNegative = false;
+		boolean inTag = false;
+		for (int i = separatorIndex + KILL_COUNT_SEPARATOR.length(); i < killCountString.length(); i++)
+		{
+			char c = killCountString.charAt(i);
+			if (inTag)
+			{
+				inTag = c != '>';
+			}
+			else if (c == '<')
+			{
+				inTag = true;
+			}
+			else if (c >= '0' && c <= '9')
+			{
+				amount = amount * 10 + (c - '0');
+				hasDigits = true;
+				if (amount > Integer.MAX_VALUE)
+				{
+					return INVALID_AMOUNT;
+				}
+			}
+			else if (c == '-' && !hasDigits && !isNegative)
+			{
+				isNegative = true;
+			}
+			else if (c != ',' && !Character.isWhitespace(c))
+			{
+				return INVALID_AMOUNT;
+			}
+		}
 
-		return new CollectionLogKillCount(name, Integer.parseInt(amount), sequence);
+		if (!hasDigits)
+		{
+			return INVALID_AMOUNT;
+		}
+		return (int) (isNegative ? -amount : amount);
 	}
-}
\ No newline at end of file
+}
@@ -1,87 +1,59 @@
 package com.evansloan.collectionlog;
 
-import com.evansloan.collectionlog.util.CollectionLogDeserializer;
-import com.evansloan.collectionlog.util.CollectionLogSerializer;
+import com.evansloan.collectionlog.util.CollectionLogBinaryFormat;
+import com.evansloan.collectionlog.util.CollectionLogJournal;
+import com.evansloan.collectionlog.util.CollectionLogTypeAdapter;
 import com.evansloan.collectionlog.util.JsonUtils;
-import com.evansloan.collectionlog.util.UserSettingsDeserializer;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
+import com.evansloan.collectionlog.util.UserSettingsAdapter;
 import com.google.gson.JsonObject;
 import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
-import net.runelite.api.EnumComposition;
-import net.runelite.api.ItemComposition;
-import net.runelite.api.StructComposition;
 import static net.runelite.client.RuneLite.RUNELITE_DIR;
-import net.runelite.client.game.ItemManager;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.game.ItemStack;
-import org.apache.commons.lang3.RandomUtils;
 
 @Slf4j
 @Singleton
 public class CollectionLogManager
 {
-	private static final List<Integer> COLLECTION_LOG_TAB_STRUCT_IDS = ImmutableList.of(
-		471, // Bosses
-		472, // Raids
-		473, // Clues
-		474, // Minigames
-		475  // Other
-	);
-	private static final List<Integer> COLLECTION_LOG_TAB_ENUM_IDS = ImmutableList.of(2103, 2104, 2105, 2106, 2107);
-	private static final int COLLECTION_LOG_TAB_NAME_PARAM_ID = 682;
-	private static final int COLLECTION_LOG_TAB_ENUM_PARAM_ID = 683;
-	private static final int COLLECTION_LOG_PAGE_NAME_PARAM_ID = 689;
-	private static final int COLLECTION_LOG_PAGE_ITEMS_ENUM_PARAM_ID = 690;
-	private static final int COLLECTION_LOG_KILL_COUNT_SCRIPT_ID = 2735;
-
 	private static final int COLLECTION_LOG_UNIQUE_OBTAINED_VARP_ID = 2943;
 	private static final int COLLECTION_LOG_UNIQUE_ITEMS_VARP_ID = 2944;
 
 	private static final File COLLECTION_LOG_DIR = new File(RUNELITE_DIR, "collectionlog");
 	private static final File COLLECTION_LOG_SAVE_DATA_DIR = new File(COLLECTION_LOG_DIR, "data");
 	private static final File COLLECTION_LOG_EXPORT_DIR = new File(COLLECTION_LOG_DIR, "exports");
-	private static final Pattern COLLECTION_LOG_FILE_PATTERN = Pattern.compile("collectionlog-([\\w\\s-]+).json");
+	private static final int MAX_LOADED_COLLECTION_LOGS = 4;
+	private static final UserSettingsAdapter USER_SETTINGS_ADAPTER = new UserSettingsAdapter();
 
 	/*
-	 * Map of item IDs that differ in page items struct vs ID on item widget in the collection log
-	 * Both IDs are valid, but causes duplicates on site
-	 *
-	 * Key: Page struct item ID
-	 * Value: Item widget item ID
+	 * Least recently used save files, loaded on demand per account. Futures complete once the
+	 * account's save file has been read, with null if the account has no save file.
+	 * Guarded by synchronizing on the map
 	 */
-	private static final Map<Integer, Integer> ITEM_ID_MAP = new ImmutableMap.Builder<Integer, Integer>()
-		.put(10859, 25617) // Tea flask
-		.put(10877, 25618) // Red satchel
-		.put(10878, 25619) // Green satchel
-		.put(10879, 25620) // Red satchel
-		.put(10880, 25621) // Black satchel
-		.put(10881, 25622) // Gold satchel
-		.put(10882, 25623) // Rune satchel
-		.put(13273, 25624) // Unsired
-		.put(12019, 25627) // Coal bag
-		.put(12020, 25628) // Gem bag
-		.put(24882, 25629) // Plank sack
-		.put(12854, 25630) // Flamtaer bag
-		.build();
-
-	private final Map<String, CollectionLog> loadedCollectionLogs = new HashMap<>();
+	private final Map<String, CompletableFuture<CollectionLog>> loadedCollectionLogs = new LinkedHashMap<String, CompletableFuture<CollectionLog>>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<CollectionLog>> eldest)
+		{
+			return size() > MAX_LOADED_COLLECTION_LOGS;
+		}
+	};
 
 	@Setter
 	private String username;
@@ -92,6 +64,12 @@ public class CollectionLogManager
 	@Getter
 	private CollectionLog collectionLog;
 
+	/*
+	 * Latest immutable copy of the collection log, safe to read from any thread
+	 */
+	@Getter
+	private volatile CollectionLog snapshot;
+
 	@Getter
 	@Setter
 	private UserSettings userSettings = new UserSettings();
@@ -100,118 +78,204 @@ public class CollectionLogManager
 	private Client client;
 
 	@Inject
-	private ItemManager itemManager;
+	private CollectionLogConfig config;
+
+	@Inject
+	private ClientThread clientThread;
+
+	@Inject
+	private ScheduledExecutorService executor;
 
 	@Inject
 	private JsonUtils jsonUtils;
 
+	@Inject
+	private CollectionLogCatalog collectionLogCatalog;
+
+	@Inject
+	private CollectionLogJournal collectionLogJournal;
+
+	@Inject
+	private CollectionLogAccountStore collectionLogAccountStore;
+
+	@Inject
+	private CollectionLogHistory collectionLogHistory;
+
+	/**
+	 * Init the collection log in two phases. The capture phase reads the game cache and varps on the
+	 * client thread, a part at a time with at most budgetNanos spent per call. The build phase constructs the
+	 * tabs and pages and merges save data into a new collection log on the executor once the account's save
+	 * file is loaded, so no tab or page construction happens on the client thread. The finished collection
+	 * log is then published on the client thread. Must be called on the client thread, repeatedly until it returns true
+	 *
+	 * @param firstTabIndex Index of the tab to read first, usually the open tab
+	 * @param budgetNanos Time allowed for this call in nanoseconds
+	 * @param onComplete Run on the client thread once the build phase ends, whether the collection log was
+	 *                   published, dropped or failed to build. Check {@link #isInitialized()} for the outcome
+	 * @return Whether the capture phase is complete
+	 */
+	public boolean initCollectionLog(int firstTabIndex, long budgetNanos, Runnable onComplete)
+	{
+		if (isInitialized)
+		{
+			return true;
+		}
+
+		if (!collectionLogCatalog.load(firstTabIndex, budgetNanos))
+		{
+			return false;
+		}
+
+		String initUsername = username;
+		if (initUsername == null)
+		{
+			// Save file can't be found until the username is known
+			return false;
+		}
+
+		int uniqueObtained = client.getVarpValue(COLLECTION_LOG_UNIQUE_OBTAINED_VARP_ID);
+		int uniqueItems = client.getVarpValue(COLLECTION_LOG_UNIQUE_ITEMS_VARP_ID);
+		Map<String, List<CollectionLogPageDefinition>> catalogTabs = collectionLogCatalog.getTabs();
+
+		loadCollectionLogFile(initUsername).thenAcceptAsync(saveFileCollectionLog -> {
+			CollectionLog builtCollectionLog = buildCollectionLog(catalogTabs, saveFileCollectionLog, initUsername, uniqueObtained, uniqueItems);
+			builtCollectionLog.snapshot();
+
+			clientThread.invoke(() -> {
+				// Drop the build if the user logged out or another init finished first
+				if (!isInitialized && Objects.equals(initUsername, username))
+				{
+					publishCollectionLog(builtCollectionLog);
+				}
+				onComplete.run();
+			});
+		}, executor).exceptionally(e -> {
+			log.error("Unable to init collection log for " + initUsername + "\n" + e.getMessage());
+			clientThread.invoke(onComplete);
+			return null;
+		});
+		return true;
+	}
+
+	void publishCollectionLog(CollectionLog builtCollectionLog)
+	{
+		// Builds take their snapshot on the executor, so publishing does no per page work on the client thread
+		collectionLog = builtCollectionLog;
+		isInitialized = true;
+		updateSnapshot();
+	}
 
 	/**
-	 * Init CollectionLog object with all items in the collection log. Does not include quantity or obtained status.
-	 * Based off cs2 scripts
-	 * <a href="https://github.com/Joshua-F/cs2-scripts/blob/master/scripts/%5Bproc,collection_draw_list%5D.cs2">2731 proc_collection_draw_list</a>
-	 * and
-	 * <a href="https://github.com/Joshua-F/cs2-scripts/blob/master/scripts/%5Bproc,collection_draw_log%5D.cs2">2732 proc_collection_draw_log</a>
-	 * If a user has previously clicked through the collection log with the plugin installed,
-	 * obtained and quantity will be set for each item if item exists in local save file.
+	 * Build a collection log from the catalog, merging in the user's save data.
+	 * Does not use the client, so may be called from any thread
+	 *
+	 * @param catalogTabs Catalog tabs to build the collection log from
+	 * @param saveFileCollectionLog The user's saved collection log, may be null
+	 * @param username Username the collection log belongs to
+	 * @param uniqueObtained Unique items obtained
+	 * @param uniqueItems Total unique items
+	 * @return New collection log
 	 */
-	public void initCollectionLog()
+	static CollectionLog buildCollectionLog(Map<String, List<CollectionLogPageDefinition>> catalogTabs, CollectionLog saveFileCollectionLog, String username, int uniqueObtained, int uniqueItems)
 	{
-		CollectionLog saveFileCollectionLog = loadedCollectionLogs.get(username);
 		boolean saveDataExists = saveFileCollectionLog != null;
 
-		int totalObtained = 0;
-		int totalItems = 0;
+		// Index save file pages by name once. Pages left after merging are no longer in the game
+		Map<String, CollectionLogPage> saveFilePages = new HashMap<>();
+		if (saveDataExists)
+		{
+			for (CollectionLogTab saveFileTab : saveFileCollectionLog.getTabs().values())
+			{
+				saveFilePages.putAll(saveFileTab.getPages());
+			}
+		}
+
+		int addedItemCount = 0;
+		int removedItemCount = 0;
+
 		Map<String, CollectionLogTab> collectionLogTabs = new HashMap<>();
 
-		for (Integer structId : COLLECTION_LOG_TAB_STRUCT_IDS)
+		for (Map.Entry<String, List<CollectionLogPageDefinition>> tab : catalogTabs.entrySet())
 		{
-			StructComposition tabStruct = client.getStructComposition(structId);
-			String tabName = tabStruct.getStringValue(COLLECTION_LOG_TAB_NAME_PARAM_ID);
-			int tabEnumId = tabStruct.getIntValue(COLLECTION_LOG_TAB_ENUM_PARAM_ID);
-			EnumComposition tabEnum = client.getEnum(tabEnumId);
+			String tabName = tab.getKey();
 
 			Map<String, CollectionLogPage> collectionLogPages = new HashMap<>();
-			for (Integer pageStructId : tabEnum.getIntVals())
+			for (CollectionLogPageDefinition pageDefinition : tab.getValue())
 			{
-				StructComposition pageStruct = client.getStructComposition(pageStructId);
-				String pageName = pageStruct.getStringValue(COLLECTION_LOG_PAGE_NAME_PARAM_ID);
-				int pageItemsEnumId = pageStruct.getIntValue(COLLECTION_LOG_PAGE_ITEMS_ENUM_PARAM_ID);
-				EnumComposition pageItemsEnum = client.getEnum(pageItemsEnumId);
-
-				List<CollectionLogItem> pageItems = new ArrayList<>();
+				String pageName = pageDefinition.getName();
+				int itemCount = pageDefinition.getItemCount();
+				int[] itemQuantities = new int[itemCount];
+				BitSet obtainedItems = new BitSet(itemCount);
 				List<CollectionLogKillCount> pageKillCounts = new ArrayList<>();
 
-				CollectionLogPage saveFilePage = null;
-				if (saveDataExists)
+				CollectionLogPage saveFilePage = saveFilePages.remove(pageName);
+				if (saveFilePage == null && saveDataExists)
 				{
+					// Fall back to a case-insensitive match for pages renamed in game
 					saveFilePage = saveFileCollectionLog.searchForPage(pageName);
+					if (saveFilePage != null && saveFilePages.remove(saveFilePage.getName()) == null)
+					{
+						saveFilePage = null;
+					}
 				}
 
-				for (Integer pageItemId : pageItemsEnum.getIntVals())
+				if (saveFilePage == null)
 				{
-					ItemComposition itemComposition = itemManager.getItemComposition(pageItemId);
-					CollectionLogItem item = CollectionLogItem.fromItemComposition(itemComposition, pageItems.size());
-
-					if (ITEM_ID_MAP.containsKey(item.getId()))
+					if (saveDataExists)
 					{
-						item.setId(ITEM_ID_MAP.get(item.getId()));
+						addedItemCount += itemCount;
 					}
-
-					if (saveDataExists && saveFilePage != null)
+				}
+				else
+				{
+					CollectionLogPageDefinition saveFileDefinition = saveFilePage.getDefinition();
+					if (saveFileDefinition == pageDefinition)
 					{
-						CollectionLogItem saveFileItem = saveFilePage.getItemById(item.getId());
-						if (saveFileItem != null)
+						// Save file page shares the catalog definition, item slots line up
+						for (int slot = 0; slot < itemCount; slot++)
 						{
-							item.setQuantity(saveFileItem.getQuantity());
-							item.setObtained(saveFileItem.isObtained());
+							itemQuantities[slot] = saveFilePage.getItemQuantity(slot);
+							obtainedItems.set(slot, saveFilePage.isItemObtained(slot));
 						}
 					}
-
-					pageItems.add(item);
-					totalItems += 1;
-					if (item.isObtained())
+					else
 					{
-						totalObtained += 1;
+						BitSet mergedSlots = new BitSet(saveFileDefinition.getItemCount());
+						for (int slot = 0; slot < itemCount; slot++)
+						{
+							int saveFileSlot = saveFileDefinition.getItemSlot(pageDefinition.getItemId(slot));
+							if (saveFileSlot == -1)
+							{
+								addedItemCount++;
+								continue;
+							}
+
+							itemQuantities[slot] = saveFilePage.getItemQuantity(saveFileSlot);
+							obtainedItems.set(slot, saveFilePage.isItemObtained(saveFileSlot));
+							mergedSlots.set(saveFileSlot);
+						}
+						removedItemCount += saveFileDefinition.getItemCount() - mergedSlots.cardinality();
 					}
 				}
 
-				/*
-				 * Run script to get available kill count names. Amounts are set in var2048 which isn't set unless
-				 * pages are manually opened in-game. Override amounts with 0 or previously saved amounts.
-				 *
-				 * https://github.com/Joshua-F/cs2-scripts/blob/master/scripts/%5Bproc,collection_category_count%5D.cs2
-				 */
-				client.runScript(COLLECTION_LOG_KILL_COUNT_SCRIPT_ID, pageStruct.getId());
-				List<String> killCountStrings = new ArrayList<>(
-					Arrays.asList(Arrays.copyOfRange(client.getStringStack(), 0, 3))
-				);
-				Collections.reverse(killCountStrings);
-
-				for (String killCountString : killCountStrings)
+				// Override kill count amounts with 0 or previously saved amounts
+				for (String killCountName : pageDefinition.getKillCountNames())
 				{
-					if (killCountString.isEmpty())
-					{
-						continue;
-					}
-					CollectionLogKillCount killCount = CollectionLogKillCount.fromString(killCountString, pageKillCounts.size());
-
 					int killCountAmount = 0;
 					if (saveFilePage != null)
 					{
-						CollectionLogKillCount saveFileKc = saveFilePage.getKillCountByName(killCount.getName());
+						CollectionLogKillCount saveFileKc = saveFilePage.getKillCountByName(killCountName);
 						if (saveFileKc != null)
 						{
 							killCountAmount = saveFileKc.getAmount();
 						}
 					}
 
-					killCount.setAmount(killCountAmount);
-					pageKillCounts.add(killCount);
+					pageKillCounts.add(new CollectionLogKillCount(killCountName, killCountAmount, pageKillCounts.size()));
 				}
 
 				boolean isUpdated = saveFilePage != null && saveFilePage.isUpdated();
-				CollectionLogPage collectionLogPage = new CollectionLogPage(pageName, pageItems, pageKillCounts, isUpdated);
+				CollectionLogPage collectionLogPage = new CollectionLogPage(pageDefinition, itemQuantities, obtainedItems, pageKillCounts, isUpdated);
 
 				collectionLogPages.put(pageName, collectionLogPage);
 			}
@@ -219,19 +283,33 @@ public class CollectionLogManager
 			collectionLogTabs.put(tabName, new CollectionLogTab(tabName, collectionLogPages));
 		}
 
-		collectionLog = new CollectionLog(
-			username,
-			totalObtained,
-			totalItems,
-			client.getVarpValue(COLLECTION_LOG_UNIQUE_OBTAINED_VARP_ID),
-			client.getVarpValue(COLLECTION_LOG_UNIQUE_ITEMS_VARP_ID),
-			collectionLogTabs
-		);
+		for (CollectionLogPage removedPage : saveFilePages.values())
+		{
+			removedItemCount += removedPage.getDefinition().getItemCount();
+		}
 
-		isInitialized = true;
+		if (addedItemCount > 0 || removedItemCount > 0)
+		{
+			log.info("Collection log changed since last save for " + username + ": "
+				+ addedItemCount + " items added, " + removedItemCount + " items removed");
+		}
+
+		return new CollectionLog(username, uniqueObtained, uniqueItems, collectionLogTabs);
 	}
 
-	private String getDataFilePath(String fileName)
+	/**
+	 * Publish an immutable snapshot of the current collection log for consumers off the client thread.
+	 * Only pages modified since the previous snapshot are copied. Must be called on the client thread
+	 *
+	 * @return The published snapshot, null if the collection log is not initialized
+	 */
+	public CollectionLog updateSnapshot()
+	{
+		snapshot = collectionLog == null ? null : collectionLog.snapshot();
+		return snapshot;
+	}
+
+	private String getDataFilePath(String username, String fileName)
 	{
 		File directory = new File(COLLECTION_LOG_SAVE_DATA_DIR + File.separator + username);
 		directory.mkdirs();
@@ -239,96 +317,224 @@ public class CollectionLogManager
 	}
 
 	public String getCollectionLogFilePath()
+	{
+		return getCollectionLogFilePath(username);
+	}
+
+	public String getCollectionLogFilePath(String username)
+	{
+		String fileName = "collectionlog-" + username + ".dat";
+		return getDataFilePath(username, fileName);
+	}
+
+	/**
+	 * Get the path of a save file written before saves were binary, migrated on load
+	 */
+	private String getLegacyCollectionLogFilePath(String username)
 	{
 		String fileName = "collectionlog-" + username + ".json";
-		return getDataFilePath(fileName);
+		return getDataFilePath(username, fileName);
+	}
+
+	public String getJournalFilePath(String username)
+	{
+		String fileName = "collectionlog-" + username + ".journal";
+		return getDataFilePath(username, fileName);
+	}
+
+	public String getHistoryFilePath(String username)
+	{
+		String fileName = "history-" + username + ".dat";
+		return getDataFilePath(username, fileName);
 	}
 
 	public String getUserSettingsFilePath()
+	{
+		return getUserSettingsFilePath(username);
+	}
+
+	public String getUserSettingsFilePath(String username)
 	{
 		String fileName = "settings-" + username + ".json"; // TODO: Username is null here
-		return getDataFilePath(fileName);
+		return getDataFilePath(username, fileName);
 	}
 
-	public String getExportFilePath()
+	public String getExportFilePath(CollectionLogExportFormat exportFormat)
 	{
 		File directory = COLLECTION_LOG_EXPORT_DIR;
 		String exportDate = new SimpleDateFormat("yyyyMMdd'T'HHmmss").format(new Date());
-		String fileName = exportDate + "-collectionlog-" + username + ".json";
+		String extension = "." + exportFormat.getFileExtension() + (config.compressFiles() ? ".gz" : "");
+		String fileName = exportDate + "-collectionlog-" + username + extension;
 
 		directory.mkdir();
 		return directory + File.separator + fileName;
 	}
 
-	public void loadCollectionLogFiles(File directory)
+	/**
+	 * Get a user's saved collection log, reading the save file on the executor if it isn't already loaded
+	 *
+	 * @param username Username to load the save file of
+	 * @return Future completed with the saved collection log, or null if the user has no save file. Completes
+	 * exceptionally if the save file couldn't be read and couldn't be moved out of the way of the next save
+	 */
+	public CompletableFuture<CollectionLog> loadCollectionLogFile(String username)
 	{
-		if (!directory.exists())
+		if (username == null)
 		{
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
-		File[] files = directory.listFiles();
-		if (files == null)
+		synchronized (loadedCollectionLogs)
 		{
-			return;
+			CompletableFuture<CollectionLog> loadedCollectionLog = loadedCollectionLogs.get(username);
+			if (loadedCollectionLog == null)
+			{
+				loadedCollectionLog = CompletableFuture.supplyAsync(() -> readCollectionLogFile(username), executor);
+				loadedCollectionLogs.put(username, loadedCollectionLog);
+
+				// Read the save file again on the next load instead of caching the failure
+				CompletableFuture<CollectionLog> failedCollectionLog = loadedCollectionLog;
+				loadedCollectionLog.whenComplete((c, e) -> {
+					if (e != null)
+					{
+						synchronized (loadedCollectionLogs)
+						{
+							loadedCollectionLogs.remove(username, failedCollectionLog);
+						}
+					}
+				});
+			}
+			return loadedCollectionLog;
 		}
+	}
 
-		for (File file : files)
+	private CollectionLog readCollectionLogFile(String username)
+	{
+		CollectionLog collectionLog;
+		File file = new File(getCollectionLogFilePath(username));
+		if (file.exists())
 		{
-			Matcher matcher = COLLECTION_LOG_FILE_PATTERN.matcher(file.getName());
-			if (!matcher.matches())
+			collectionLog = new CollectionLogBinaryFormat(collectionLogCatalog).readFile(file.getPath());
+			if (collectionLog == null)
 			{
-				continue;
+				// Journal records only apply to the save file they were written over
+				backUpUnreadableFile(file);
+				backUpUnreadableFile(new File(getJournalFilePath(username)));
+				return null;
 			}
+		}
+		else
+		{
+			collectionLog = migrateLegacyCollectionLogFile(username);
+		}
+
+		if (collectionLog == null)
+		{
+			return null;
+		}
+
+		// Changes made since the last full save are journaled and replayed over it
+		int recordCount = collectionLogJournal.replay(getJournalFilePath(username), collectionLog);
+		if (recordCount > 0)
+		{
+			log.debug("Replayed " + recordCount + " journal records for " + username);
+		}
 
-			String fileUsername = matcher.group(1);
-			CollectionLog loadedCollectionLog = jsonUtils.readJsonFile(file.getPath(), CollectionLog.class, new CollectionLogDeserializer());
-			loadedCollectionLogs.put(fileUsername, loadedCollectionLog);
+		// Accounts saved before the account store existed are added the first time they're loaded
+		if (collectionLogAccountStore.getAccount(username) == null)
+		{
+			collectionLogAccountStore.update(username, collectionLog);
 		}
+		return collectionLog;
 	}
 
-	public void loadCollectionLogFiles() {
-		if (!COLLECTION_LOG_SAVE_DATA_DIR.exists() || !COLLECTION_LOG_SAVE_DATA_DIR.isDirectory()) {
-			log.error("Directory: \"" + COLLECTION_LOG_DIR.getPath() + "\" does not exist");
-			return;
+	/**
+	 * Read a JSON save file and rewrite it in the binary format, removing the JSON file once converted
+	 *
+	 * @param username Username to migrate the save file of
+	 * @return Saved collection log, null if the user has no readable JSON save file
+	 */
+	private CollectionLog migrateLegacyCollectionLogFile(String username)
+	{
+		File legacyFile = new File(getLegacyCollectionLogFilePath(username));
+		if (!legacyFile.exists())
+		{
+			return null;
+		}
+
+		CollectionLog collectionLog = new CollectionLogBinaryFormat(collectionLogCatalog)
+			.migrateJsonFile(jsonUtils, legacyFile.getPath(), getCollectionLogFilePath(username), config.compressFiles());
+		if (collectionLog == null)
+		{
+			backUpUnreadableFile(legacyFile);
 		}
+		return collectionLog;
+	}
 
-		File[] userDirectories = COLLECTION_LOG_SAVE_DATA_DIR.listFiles();
-		if (userDirectories == null) {
-			log.warn("No collection logs have been found");
+	/**
+	 * Move an unreadable save file aside so the next save doesn't overwrite the data it may still hold
+	 *
+	 * @param file Unreadable file
+	 * @throws IllegalStateException If the file exists and couldn't be moved
+	 */
+	private void backUpUnreadableFile(File file)
+	{
+		if (!file.exists())
+		{
 			return;
 		}
 
-		for (File userDirectory : userDirectories) {
-			loadCollectionLogFiles(userDirectory);
+		String backupDate = new SimpleDateFormat("yyyyMMdd'T'HHmmss").format(new Date());
+		File backupFile = new File(file.getPath() + ".unreadable-" + backupDate);
+		if (!file.renameTo(backupFile))
+		{
+			throw new IllegalStateException("Unable to read or back up save file at path: " + file.getPath());
 		}
+		log.error("Unable to read save file at path: " + file.getPath() + ", moved to " + backupFile.getPath());
 	}
 
 	public UserSettings loadUserSettingsFile()
 	{
-		return jsonUtils.readJsonFile(getUserSettingsFilePath(), UserSettings.class, new UserSettingsDeserializer());
+		return jsonUtils.readJsonFile(getUserSettingsFilePath(), USER_SETTINGS_ADAPTER);
 	}
 
-	public boolean saveCollectionLogFile(boolean isExport)
+	/**
+	 * Save a collection log snapshot to the user's data directory. Safe to call off the client thread
+	 *
+	 * @param collectionLog Collection log snapshot to save
+	 * @return Whether the file was saved
+	 */
+	public boolean saveCollectionLogFile(CollectionLog collectionLog)
 	{
-		String filePath = getCollectionLogFilePath();
-		if (isExport)
-		{
-			filePath = getExportFilePath();
-		}
-
-		boolean isSaved = jsonUtils.writeJsonFile(filePath, collectionLog, new CollectionLogSerializer());
+		String filePath = getCollectionLogFilePath(collectionLog.getUsername());
+		boolean isSaved = new CollectionLogBinaryFormat().writeFile(filePath, collectionLog, config.compressFiles());
 		if (isSaved)
 		{
-			loadedCollectionLogs.put(username, collectionLog);
+			synchronized (loadedCollectionLogs)
+			{
+				loadedCollectionLogs.put(collectionLog.getUsername(), CompletableFuture.completedFuture(collectionLog));
+			}
 		}
 
 		return isSaved;
 	}
 
-	public boolean saveUserSettingsFile()
+	/**
+	 * Export a collection log snapshot. Safe to call off the client thread
+	 *
+	 * @param collectionLog Collection log snapshot to export
+	 * @param filePath Path of the export file, gzip compressed if it ends in .gz
+	 * @param exportFormat Format to export in
+	 * @return Whether the file was exported
+	 */
+	public boolean exportCollectionLogFile(CollectionLog collectionLog, String filePath, CollectionLogExportFormat exportFormat)
+	{
+		return jsonUtils.writeExportFile(filePath, collectionLog, exportFormat.createExporter(), filePath.endsWith(".gz"));
+	}
+
+	public boolean saveUserSettingsFile(String username, UserSettings userSettings)
 	{
-		return jsonUtils.writeJsonFile(getUserSettingsFilePath(), userSettings);
+		return jsonUtils.writeJsonFile(getUserSettingsFilePath(username), userSettings, USER_SETTINGS_ADAPTER);
 	}
 
 	/**
@@ -343,15 +549,25 @@ public class CollectionLogManager
 			log.error("Unable to delete collection log save file: " + filePath);
 			return;
 		}
+		collectionLogJournal.clear(getJournalFilePath(username));
 
-		loadedCollectionLogs.remove(username);
+		String deletedUsername = username;
+		executor.execute(() -> collectionLogAccountStore.remove(deletedUsername));
+		executor.execute(() -> collectionLogHistory.deleteHistory(deletedUsername));
+
+		synchronized (loadedCollectionLogs)
+		{
+			loadedCollectionLogs.remove(username);
+		}
 		isInitialized = false;
 		collectionLog = null;
+		snapshot = null;
 	}
 
 	public void reset()
 	{
 		collectionLog = null;
+		snapshot = null;
 		isInitialized = false;
 		username = null;
 		userSettings = new UserSettings();
@@ -361,101 +577,92 @@ public class CollectionLogManager
 	{
 		collectionLog.setUniqueObtained(client.getVarpValue(COLLECTION_LOG_UNIQUE_OBTAINED_VARP_ID));
 		collectionLog.setUniqueItems(client.getVarpValue(COLLECTION_LOG_UNIQUE_ITEMS_VARP_ID));
+		updateSnapshot();
 	}
 
-	/**
-	 * Updates the total amount of items in the collection log
-	 */
-	public void updateTotalItems()
+	public CollectionLogTab getTabByName(String tabName)
 	{
-		int newTotal = 0;
-		for (CollectionLogTab tab : collectionLog.getTabs().values())
-		{
-			Collection<CollectionLogPage> pages = tab.getPages().values();
-			newTotal += pages.stream().mapToInt(page -> page.getItems().size()).sum();
-		}
-
-		if (newTotal > collectionLog.getTotalItems())
+		if (collectionLog == null)
 		{
-			collectionLog.setTotalItems(newTotal);
+			return null;
 		}
-	}
-
-	public CollectionLogTab getTabByName(String tabName)
-	{
 		return collectionLog.getTabs().get(tabName);
 	}
 
 	public CollectionLogPage getPageByName(String pageName)
 	{
+		if (collectionLog == null)
+		{
+			return null;
+		}
 		return collectionLog.searchForPage(pageName);
 	}
 
-	public boolean updateObtainedItem(ItemStack itemStack)
+	/**
+	 * Add a newly obtained item to every page containing it
+	 *
+	 * @param itemStack Obtained item
+	 * @return Pages the item was updated in, empty if the item wasn't found
+	 */
+	public List<CollectionLogPage> updateObtainedItem(ItemStack itemStack)
 	{
+		List<CollectionLogPage> updatedPages = new ArrayList<>();
 		if (!isInitialized)
 		{
-			return false;
+			return updatedPages;
 		}
 
-		boolean itemUpdated = false;
-		for (CollectionLogTab tab : collectionLog.getTabs().values())
+		for (CollectionLogPage page : collectionLog.getPagesByItemId(itemStack.getId()))
 		{
-			for (CollectionLogPage page : tab.getPages().values())
+			CollectionLogItem existingItem = page.getItemById(itemStack.getId());
+			if (existingItem == null)
 			{
-				CollectionLogItem existingItem = page.getItemById(itemStack.getId());
-				if (existingItem == null)
-				{
-					continue;
-				}
-
-				itemUpdated = true;
-				existingItem.setQuantity(existingItem.getQuantity() + itemStack.getQuantity());
-				existingItem.setObtained(true);
-
-				collectionLog.setTotalObtained(collectionLog.getTotalObtained() + 1);
+				continue;
 			}
+
+			updatedPages.add(page);
+			existingItem.setQuantity(existingItem.getQuantity() + itemStack.getQuantity());
+			existingItem.setObtained(true);
 		}
 
-		if (itemUpdated)
+		if (!updatedPages.isEmpty())
 		{
 			collectionLog.setUniqueObtained(collectionLog.getUniqueObtained() + 1);
+			updateSnapshot();
 		}
 
-		return false;
+		return updatedPages;
 	}
 
-	public JsonObject getCollectionLogJsonObject()
+	/**
+	 * Replace the items of a page in the current collection log
+	 *
+	 * @param page Page to update
+	 * @param items New items of the page
+	 */
+	public void updatePageItems(CollectionLogPage page, List<CollectionLogItem> items)
+	{
+		collectionLog.setPageItems(page, items);
+	}
+
+	public JsonObject getCollectionLogJsonObject(CollectionLog collectionLog)
 	{
-		return jsonUtils.toJsonObject(collectionLog, new CollectionLogSerializer());
+		return jsonUtils.toJsonObject(collectionLog, new CollectionLogTypeAdapter());
 	}
 
-	public JsonObject getUserSettingsJsonObject()
+	public JsonObject getUserSettingsJsonObject(UserSettings userSettings)
 	{
 		return jsonUtils.toJsonObject(userSettings);
 	}
 
 	public CollectionLogItem getRandomItem()
 	{
-		if (!isInitialized())
+		CollectionLog collectionLog = snapshot;
+		if (collectionLog == null)
 		{
 			return null;
 		}
 
-		int totalMissing = Math.min(collectionLog.getUniqueItems() - collectionLog.getTotalObtained(), 16);
-		List<CollectionLogItem> items = new ArrayList<>(totalMissing);
-
-		for (Map.Entry<String, CollectionLogTab> entry : collectionLog.getTabs().entrySet())
-		{
-			CollectionLogTab collectionLogTab = entry.getValue();
-			for (CollectionLogPage page : collectionLogTab.getPages().values())
-			{
-				List<CollectionLogItem> pageItems = page.applyItemFilter(CollectionLogPage.ITEM_FILTER_MISSING);
-				items.addAll(pageItems);
-			}
-		}
-
-		int index = RandomUtils.nextInt(0, items.size() - 1);
-		return items.get(index);
+		return collectionLog.randomMissingItem();
 	}
 }
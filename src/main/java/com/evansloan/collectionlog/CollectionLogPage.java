@@ -1,35 +1,124 @@
 package com.evansloan.collectionlog;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.List;
 import java.util.Map;
-import lombok.AllArgsConstructor;
+import java.util.RandomAccess;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
 @Getter
-@AllArgsConstructor
 public class CollectionLogPage
 {
 	public static final String ITEM_FILTER_DUPES = "dupes";
 	public static final String ITEM_FILTER_MISSING = "missing";
 	public static final String ITEM_FILTER_OBTAINED = "obtained";
 
+	// Obtained and missing filters are served from the obtained item bitset
 	private static final Map<String, Predicate<CollectionLogItem>> ITEM_FILTERS = new ImmutableMap.Builder<String, Predicate<CollectionLogItem>>()
-		.put(ITEM_FILTER_OBTAINED, CollectionLogItem::isObtained)
-		.put(ITEM_FILTER_MISSING, (item) -> !item.isObtained())
 		.put(ITEM_FILTER_DUPES, (item) -> item.getQuantity() > 1)
 		.build();
 
-	private final String name;
-	private List<CollectionLogItem> items;
-	private final List<CollectionLogKillCount> killCounts;
+	private final List<CollectionLogItem> items = new ItemList();
+	private List<CollectionLogKillCount> killCounts;
+
+	/*
+	 * Kill count names to kill counts, built on first lookup and cleared when kill counts are replaced
+	 */
+	@Getter(AccessLevel.NONE)
+	private volatile Map<String, CollectionLogKillCount> killCountIndex;
 
-	@Setter
 	private boolean isUpdated;
 
+	/*
+	 * Page name, item IDs and item names, shared with other accounts and snapshots
+	 */
+	private CollectionLogPageDefinition definition;
+
+	/*
+	 * Per account item state indexed by the item's position in the page
+	 */
+	@Getter(AccessLevel.NONE)
+	private int[] itemQuantities;
+
+	@Getter(AccessLevel.NONE)
+	private BitSet obtainedItems;
+
+	/*
+	 * Item views created on first access and reused until the page's definition changes.
+	 * Views may be created concurrently on snapshots shared between threads, views are
+	 * interchangeable so a lost race only creates an extra view
+	 */
+	@Getter(AccessLevel.NONE)
+	private ItemView[] itemViews;
+
+	private int obtainedItemCount;
+
+	@Getter(AccessLevel.NONE)
+	private CollectionLogTab tab;
+
+	/*
+	 * Immutable copy of the page, reused until the page changes
+	 */
+	@Getter(AccessLevel.NONE)
+	private CollectionLogPage snapshot;
+
+	public CollectionLogPage(String name, List<CollectionLogItem> items, List<CollectionLogKillCount> killCounts, boolean isUpdated)
+	{
+		this.definition = new CollectionLogPageDefinition(name, new int[0], new String[0], Collections.emptyList());
+		this.killCounts = killCounts;
+		this.isUpdated = isUpdated;
+		setItems(items);
+	}
+
+	/**
+	 * Create a page from a shared page definition
+	 *
+	 * @param definition Shared page definition
+	 * @param itemQuantities Quantity of each item in the definition
+	 * @param obtainedItems Obtained state of each item in the definition
+	 * @param killCounts Kill counts of the page
+	 * @param isUpdated Whether the page has been opened in game
+	 */
+	public CollectionLogPage(CollectionLogPageDefinition definition, int[] itemQuantities, BitSet obtainedItems, List<CollectionLogKillCount> killCounts, boolean isUpdated)
+	{
+		this.definition = definition;
+		this.itemQuantities = itemQuantities;
+		this.obtainedItems = obtainedItems;
+		this.obtainedItemCount = obtainedItems.cardinality();
+		this.killCounts = killCounts;
+		this.isUpdated = isUpdated;
+	}
+
+	private CollectionLogPage(CollectionLogPage page)
+	{
+		ImmutableList.Builder<CollectionLogKillCount> killCountsCopy = ImmutableList.builder();
+		for (CollectionLogKillCount killCount : page.killCounts)
+		{
+			killCountsCopy.add(new CollectionLogKillCount(
+				killCount.getName(),
+				killCount.getAmount(),
+				killCount.getSequence()
+			));
+		}
+
+		this.definition = page.definition;
+		this.killCounts = killCountsCopy.build();
+		this.isUpdated = page.isUpdated;
+		this.itemQuantities = page.itemQuantities.clone();
+		this.obtainedItems = (BitSet) page.obtainedItems.clone();
+		this.obtainedItemCount = page.obtainedItemCount;
+		this.snapshot = this;
+	}
+
 	public static String aliasPageName(String pageName)
 	{
 		switch (pageName.toLowerCase())
@@ -475,27 +564,225 @@ public class CollectionLogPage
 		}
 	}
 
-	public int getObtainedItemCount()
+	public String getName()
+	{
+		return definition.getName();
+	}
+
+	public int getMissingItemCount()
 	{
-		return (int) items.stream()
-			.filter(CollectionLogItem::isObtained)
-			.count();
+		return definition.getItemCount() - obtainedItemCount;
+	}
+
+	/**
+	 * Get the quantity of the item at a position in the page
+	 *
+	 * @param slot Position of the item in the page
+	 * @return Quantity of the item
+	 */
+	public int getItemQuantity(int slot)
+	{
+		return itemQuantities[slot];
+	}
+
+	/**
+	 * Check if the item at a position in the page has been obtained
+	 *
+	 * @param slot Position of the item in the page
+	 * @return Whether the item has been obtained
+	 */
+	public boolean isItemObtained(int slot)
+	{
+		return obtainedItems.get(slot);
 	}
 
 	public CollectionLogItem getItemById(int itemId)
 	{
-		for (CollectionLogItem item : getItems())
+		int slot = definition.getItemSlot(itemId);
+		if (slot == -1)
 		{
-			if (item.getId() == itemId)
-			{
-				return item;
-			}
+			return null;
+		}
+		return items.get(slot);
+	}
+
+	/**
+	 * Replace the items of the page and rebuild the item slot index.
+	 * Use {@link CollectionLog#setPageItems} for pages belonging to a collection log
+	 *
+	 * @param items New items of the page
+	 */
+	void setItems(List<CollectionLogItem> items)
+	{
+		checkNotSnapshot();
+		int prevObtainedItemCount = obtainedItemCount;
+		int prevItemCount = itemQuantities == null ? 0 : itemQuantities.length;
+
+		int itemCount = items.size();
+		int[] newItemIds = new int[itemCount];
+		String[] newItemNames = new String[itemCount];
+		int[] newItemSequences = new int[itemCount];
+		int[] newItemQuantities = new int[itemCount];
+		BitSet newObtainedItems = new BitSet(itemCount);
+
+		for (int i = 0; i < itemCount; i++)
+		{
+			CollectionLogItem item = items.get(i);
+			newItemIds[i] = item.getId();
+			newItemNames[i] = item.getName();
+			newItemSequences[i] = item.getSequence();
+			newItemQuantities[i] = item.getQuantity();
+			newObtainedItems.set(i, item.isObtained());
+		}
+
+		// Keep sharing the current definition unless the page's items have changed
+		if (!definition.matches(definition.getName(), newItemIds, newItemNames, newItemSequences))
+		{
+			definition = new CollectionLogPageDefinition(definition.getName(), newItemIds, newItemNames, newItemSequences, definition.getKillCountNames());
+			itemViews = null;
+		}
+		itemQuantities = newItemQuantities;
+		obtainedItems = newObtainedItems;
+		obtainedItemCount = newObtainedItems.cardinality();
+
+		updateTabCounts(obtainedItemCount - prevObtainedItemCount, itemCount - prevItemCount);
+		invalidateSnapshot();
+	}
+
+	public void setKillCounts(List<CollectionLogKillCount> killCounts)
+	{
+		checkNotSnapshot();
+		this.killCounts = killCounts;
+		this.killCountIndex = null;
+		invalidateSnapshot();
+	}
+
+	public void setUpdated(boolean isUpdated)
+	{
+		checkNotSnapshot();
+		if (this.isUpdated == isUpdated)
+		{
+			return;
 		}
-		return null;
+
+		this.isUpdated = isUpdated;
+		invalidateSnapshot();
+	}
+
+	/**
+	 * Get an immutable copy of the page. The copy is cached and shared between
+	 * snapshots until the page is modified. Modifying the copy or its items throws
+	 * {@link UnsupportedOperationException}
+	 *
+	 * @return Immutable copy of the page
+	 */
+	public CollectionLogPage snapshot()
+	{
+		if (snapshot != null)
+		{
+			return snapshot;
+		}
+
+		snapshot = new CollectionLogPage(this);
+		return snapshot;
+	}
+
+	/**
+	 * @return Whether this is an immutable snapshot of a page
+	 */
+	public boolean isSnapshot()
+	{
+		return snapshot == this;
+	}
+
+	private void checkNotSnapshot()
+	{
+		if (isSnapshot())
+		{
+			throw new UnsupportedOperationException("Collection log page snapshots can't be modified");
+		}
+	}
+
+	void invalidateSnapshot()
+	{
+		if (snapshot == null || isSnapshot())
+		{
+			return;
+		}
+
+		snapshot = null;
+		if (tab != null)
+		{
+			tab.invalidateSnapshot();
+		}
+	}
+
+	void setTab(CollectionLogTab tab)
+	{
+		this.tab = tab;
+	}
+
+	private void updateTabCounts(int obtainedDelta, int itemDelta)
+	{
+		if (tab != null && (obtainedDelta != 0 || itemDelta != 0))
+		{
+			tab.updateCounts(obtainedDelta, itemDelta);
+		}
+	}
+
+	private void setQuantity(int slot, int quantity)
+	{
+		checkNotSnapshot();
+		if (itemQuantities[slot] == quantity)
+		{
+			return;
+		}
+
+		itemQuantities[slot] = quantity;
+		invalidateSnapshot();
+	}
+
+	private void setObtained(int slot, boolean obtained)
+	{
+		checkNotSnapshot();
+		if (obtainedItems.get(slot) == obtained)
+		{
+			return;
+		}
+
+		int obtainedDelta = obtained ? 1 : -1;
+		obtainedItems.set(slot, obtained);
+		obtainedItemCount += obtainedDelta;
+		updateTabCounts(obtainedDelta, 0);
+		if (tab != null)
+		{
+			tab.updateItemObtained(this, slot, obtained);
+		}
+		invalidateSnapshot();
 	}
 
 	public List<CollectionLogItem> applyItemFilter(String filterString)
 	{
+		if (ITEM_FILTER_OBTAINED.equals(filterString))
+		{
+			List<CollectionLogItem> obtained = new ArrayList<>(obtainedItemCount);
+			for (int i = obtainedItems.nextSetBit(0); i >= 0; i = obtainedItems.nextSetBit(i + 1))
+			{
+				obtained.add(items.get(i));
+			}
+			return obtained;
+		}
+
+		if (ITEM_FILTER_MISSING.equals(filterString))
+		{
+			List<CollectionLogItem> missing = new ArrayList<>(getMissingItemCount());
+			for (int i = obtainedItems.nextClearBit(0); i < itemQuantities.length; i = obtainedItems.nextClearBit(i + 1))
+			{
+				missing.add(items.get(i));
+			}
+			return missing;
+		}
+
 		Predicate<CollectionLogItem> filter = ITEM_FILTERS.get(filterString);
 		if (filter == null)
 		{
@@ -507,13 +794,91 @@ public class CollectionLogPage
 
 	public CollectionLogKillCount getKillCountByName(String name)
 	{
-		for (CollectionLogKillCount killCount : getKillCounts())
+		Map<String, CollectionLogKillCount> index = killCountIndex;
+		if (index == null)
 		{
-			if (killCount.getName().equals(name))
+			index = new HashMap<>(killCounts.size() * 2);
+			for (CollectionLogKillCount killCount : killCounts)
 			{
-				return killCount;
+				// Keep the first kill count for duplicate names, matching a linear scan
+				index.putIfAbsent(killCount.getName(), killCount);
 			}
+			killCountIndex = index;
+		}
+		return index.get(name);
+	}
+
+	/**
+	 * List view over the page's item storage
+	 */
+	private class ItemList extends AbstractList<CollectionLogItem> implements RandomAccess
+	{
+		@Override
+		public CollectionLogItem get(int index)
+		{
+			if (index < 0 || index >= itemQuantities.length)
+			{
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + itemQuantities.length);
+			}
+
+			ItemView[] currentViews = itemViews;
+			if (currentViews == null || currentViews.length != itemQuantities.length)
+			{
+				currentViews = new ItemView[itemQuantities.length];
+				itemViews = currentViews;
+			}
+
+			ItemView view = currentViews[index];
+			if (view == null)
+			{
+				view = new ItemView(index);
+				currentViews[index] = view;
+			}
+			return view;
+		}
+
+		@Override
+		public int size()
+		{
+			return itemQuantities.length;
+		}
+	}
+
+	/**
+	 * Item backed by the page's item storage. Quantity and obtained changes are written to the page
+	 */
+	private class ItemView extends CollectionLogItem
+	{
+		private final int slot;
+
+		private ItemView(int slot)
+		{
+			super(definition.getItemId(slot), definition.getItemName(slot), 0, false, definition.getItemSequence(slot));
+			this.slot = slot;
+		}
+
+		@Override
+		public int getQuantity()
+		{
+			return itemQuantities[slot];
+		}
+
+		@Override
+		public void setQuantity(int quantity)
+		{
+			CollectionLogPage.this.setQuantity(slot, quantity);
+		}
+
+		@Override
+		public boolean isObtained()
+		{
+			return obtainedItems.get(slot);
+		}
+
+		@Override
+		public void setObtained(boolean obtained)
+		{
+			CollectionLogPage.this.setObtained(slot, obtained);
 		}
-		return null;
 	}
 }
@@ -0,0 +1,132 @@
+package com.evansloan.collectionlog;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Immutable description of a collection log page: its name, items and kill count names.
+ * Definitions are shared between every account's copy of the page, which only stores
+ * quantities, obtained state and kill count amounts
+ */
+public class CollectionLogPageDefinition
+{
+	@Getter
+	private final String name;
+
+	private final int[] itemIds;
+
+	private final String[] itemNames;
+
+	/*
+	 * Saved sequence of each item, null when every item's sequence is its position in the page
+	 */
+	private final int[] itemSequences;
+
+	@Getter
+	private final List<String> killCountNames;
+
+	private final Map<Integer, Integer> itemSlots;
+
+	public CollectionLogPageDefinition(String name, int[] itemIds, String[] itemNames, List<String> killCountNames)
+	{
+		this(name, itemIds, itemNames, null, killCountNames);
+	}
+
+	/**
+	 * @param name Page name
+	 * @param itemIds Item IDs in page order
+	 * @param itemNames Item names in page order
+	 * @param itemSequences Item sequences in page order, null if each item's sequence is its position
+	 * @param killCountNames Kill count names of the page
+	 */
+	public CollectionLogPageDefinition(String name, int[] itemIds, String[] itemNames, int[] itemSequences, List<String> killCountNames)
+	{
+		this.name = name;
+		this.itemIds = itemIds.clone();
+		this.itemNames = itemNames.clone();
+		this.itemSequences = isSlotOrder(itemSequences) ? null : itemSequences.clone();
+		this.killCountNames = ImmutableList.copyOf(killCountNames);
+
+		Map<Integer, Integer> slots = new HashMap<>(itemIds.length * 2);
+		for (int i = 0; i < itemIds.length; i++)
+		{
+			slots.putIfAbsent(itemIds[i], i);
+		}
+		this.itemSlots = ImmutableMap.copyOf(slots);
+	}
+
+	public int getItemCount()
+	{
+		return itemIds.length;
+	}
+
+	public int getItemId(int slot)
+	{
+		return itemIds[slot];
+	}
+
+	public String getItemName(int slot)
+	{
+		return itemNames[slot];
+	}
+
+	public int getItemSequence(int slot)
+	{
+		return itemSequences == null ? slot : itemSequences[slot];
+	}
+
+	/**
+	 * Get the position of an item in the page
+	 *
+	 * @param itemId ID of the item
+	 * @return Position of the item, -1 if the item is not in the page
+	 */
+	public int getItemSlot(int itemId)
+	{
+		Integer slot = itemSlots.get(itemId);
+		if (slot == null)
+		{
+			return -1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Check if this definition describes the given page items
+	 *
+	 * @param name Page name
+	 * @param itemIds Item IDs in page order
+	 * @param itemNames Item names in page order
+	 * @param itemSequences Item sequences in page order, null if each item's sequence is its position
+	 * @return Whether the page name and items are identical
+	 */
+	public boolean matches(String name, int[] itemIds, String[] itemNames, int[] itemSequences)
+	{
+		return this.name.equals(name)
+			&& Arrays.equals(this.itemIds, itemIds)
+			&& Arrays.equals(this.itemNames, itemNames)
+			&& (isSlotOrder(itemSequences) ? this.itemSequences == null : Arrays.equals(this.itemSequences, itemSequences));
+	}
+
+	private static boolean isSlotOrder(int[] itemSequences)
+	{
+		if (itemSequences == null)
+		{
+			return true;
+		}
+
+		for (int slot = 0; slot < itemSequences.length; slot++)
+		{
+			if (itemSequences[slot] != slot)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
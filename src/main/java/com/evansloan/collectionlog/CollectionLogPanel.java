@@ -389,7 +389,8 @@ public class CollectionLogPanel extends PluginPanel
 
 		randomCollectionLogBtn = createButton(
 			"Roll New Item",
-			(event) -> clientThread.invokeLater(() -> {
+			(event) -> {
+				// Reads from the latest collection log snapshot, no need to hop to the client thread
 				CollectionLogItem item = collectionLogManager.getRandomItem();
 				if (item == null)
 				{
@@ -399,7 +400,7 @@ public class CollectionLogPanel extends PluginPanel
 				AsyncBufferedImage itemImage = itemManager.getImage(item.getId(), 1, false);
 				itemImage.addTo(randomItemSprite);
 				randomItemLabel.setText(item.getName());
-			})
+			}
 		);
 		buttonPanel.add(randomCollectionLogBtn);
 
@@ -0,0 +1,210 @@
+package com.evansloan.collectionlog;
+
+import com.evansloan.collectionlog.util.CollectionLogJournal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind persistence of collection log save files. Changes are appended to a per-user journal as they
+ * happen and compacted into a full save periodically. Saves are queued per user and written on a
+ * dedicated background thread, with newer data replacing queued data that hasn't been written yet.
+ * Changes are only accepted between {@link #startUp()} and {@link #shutDown()}
+ */
+@Slf4j
+@Singleton
+public class CollectionLogPersistence
+{
+	private static final int JOURNAL_COMPACTION_RECORDS = 200;
+
+	@Inject
+	private CollectionLogManager collectionLogManager;
+
+	@Inject
+	private CollectionLogJournal collectionLogJournal;
+
+	@Inject
+	private CollectionLogAccountStore collectionLogAccountStore;
+
+	private ExecutorService persistenceExecutor;
+
+	/*
+	 * Usernames to data waiting to be written. Guarded by this
+	 */
+	private final Map<String, PendingSave> pendingSaves = new HashMap<>();
+
+	/*
+	 * Usernames to the number of records journaled since the last full save was queued. Guarded by this
+	 */
+	private final Map<String, Integer> journalRecordCounts = new HashMap<>();
+
+	/*
+	 * Usernames to the last collection log snapshot written. Only accessed on the persistence thread
+	 */
+	private final Map<String, CollectionLog> savedCollectionLogs = new HashMap<>();
+
+	public synchronized void startUp()
+	{
+		if (persistenceExecutor != null)
+		{
+			return;
+		}
+
+		// Not a daemon thread, so writes queued at shutdown finish even if the client is exiting
+		persistenceExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "collection-log-persistence"));
+		journalRecordCounts.clear();
+	}
+
+	/**
+	 * Write all queued saves and stop the persistence thread once they're written. Doesn't wait for the writes
+	 */
+	public void shutDown()
+	{
+		ExecutorService executor;
+		List<String> usernames;
+		synchronized (this)
+		{
+			executor = persistenceExecutor;
+			persistenceExecutor = null;
+			usernames = new ArrayList<>(pendingSaves.keySet());
+		}
+
+		if (executor == null)
+		{
+			return;
+		}
+
+		for (String username : usernames)
+		{
+			executor.execute(() -> write(username));
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Append a change to the user's journal, queueing a full save once enough changes have been journaled
+	 *
+	 * @param collectionLog Collection log snapshot including the change
+	 * @param userSettings User settings to save with a full save
+	 * @param record Journal record of the change
+	 */
+	public synchronized void journal(CollectionLog collectionLog, UserSettings userSettings, CollectionLogJournal.Record record)
+	{
+		String username = collectionLog.getUsername();
+		if (persistenceExecutor == null)
+		{
+			log.warn("Collection log change for " + username + " not journaled, persistence is shut down");
+			return;
+		}
+
+		persistenceExecutor.execute(() -> collectionLogJournal.append(collectionLogManager.getJournalFilePath(username), record));
+
+		// A queued save clears the journal once written, so it must include this change
+		PendingSave pendingSave = pendingSaves.get(username);
+		if (pendingSave != null)
+		{
+			pendingSave.collectionLog = collectionLog;
+			pendingSave.userSettings = userSettings;
+			return;
+		}
+
+		int recordCount = journalRecordCounts.merge(username, 1, Integer::sum);
+		if (recordCount >= JOURNAL_COMPACTION_RECORDS)
+		{
+			queueSave(collectionLog, userSettings);
+		}
+	}
+
+	/**
+	 * Queue a save of a collection log to be written as soon as possible
+	 *
+	 * @param collectionLog Collection log snapshot to save
+	 * @param userSettings User settings to save
+	 * @return Future completed with whether the files were saved, false if persistence is shut down
+	 */
+	public CompletableFuture<Boolean> save(CollectionLog collectionLog, UserSettings userSettings)
+	{
+		return queueSave(collectionLog, userSettings);
+	}
+
+	private synchronized CompletableFuture<Boolean> queueSave(CollectionLog collectionLog, UserSettings userSettings)
+	{
+		String username = collectionLog.getUsername();
+		if (persistenceExecutor == null)
+		{
+			log.warn("Collection log save for " + username + " not queued, persistence is shut down");
+			return CompletableFuture.completedFuture(false);
+		}
+
+		PendingSave pendingSave = pendingSaves.get(username);
+		if (pendingSave == null)
+		{
+			pendingSave = new PendingSave();
+			pendingSaves.put(username, pendingSave);
+		}
+
+		pendingSave.collectionLog = collectionLog;
+		pendingSave.userSettings = userSettings;
+		journalRecordCounts.remove(username);
+
+		// A queued write that hasn't started yet picks up the new data when it runs. A write that has
+		// started has already removed its pending save, so the new data gets a write of its own
+		if (pendingSave.write == null)
+		{
+			pendingSave.write = persistenceExecutor.submit(() -> write(username));
+		}
+
+		return pendingSave.result;
+	}
+
+	private void write(String username)
+	{
+		PendingSave pendingSave;
+		synchronized (this)
+		{
+			pendingSave = pendingSaves.remove(username);
+		}
+
+		if (pendingSave == null)
+		{
+			return;
+		}
+
+		boolean isSaved = true;
+		// Snapshots are reused until the collection log changes, skip rewriting an unchanged log
+		if (savedCollectionLogs.get(username) != pendingSave.collectionLog)
+		{
+			isSaved = collectionLogManager.saveCollectionLogFile(pendingSave.collectionLog);
+			if (isSaved)
+			{
+				savedCollectionLogs.put(username, pendingSave.collectionLog);
+				collectionLogAccountStore.update(username, pendingSave.collectionLog);
+			}
+		}
+
+		// Every journaled change is in the saved snapshot, records appended after this are kept
+		if (isSaved)
+		{
+			collectionLogJournal.clear(collectionLogManager.getJournalFilePath(username));
+		}
+
+		isSaved = isSaved && collectionLogManager.saveUserSettingsFile(username, pendingSave.userSettings);
+		pendingSave.result.complete(isSaved);
+	}
+
+	private static class PendingSave
+	{
+		private CollectionLog collectionLog;
+		private UserSettings userSettings;
+		private Future<?> write;
+		private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+	}
+}
@@ -1,8 +1,7 @@
 package com.evansloan.collectionlog;
 
 import com.evansloan.collectionlog.ui.Icon;
-import com.evansloan.collectionlog.util.CollectionLogDeserializer;
-import com.evansloan.collectionlog.util.JsonUtils;
+import com.evansloan.collectionlog.util.CollectionLogJournal;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
@@ -19,6 +18,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -34,6 +36,7 @@ import net.runelite.api.IndexedSprite;
 import net.runelite.api.InventoryID;
 import net.runelite.api.ItemComposition;
 import net.runelite.api.ItemContainer;
+import net.runelite.api.Menu;
 import net.runelite.api.MenuAction;
 import net.runelite.api.MenuEntry;
 import net.runelite.api.Player;
@@ -88,6 +91,7 @@ public class CollectionLogPlugin extends Plugin
 	private static final int COLLECTION_LOG_CONTAINER = 1;
 	private static final int COLLECTION_LOG_ACTIVE_TAB_VARBIT_ID = 6905;
 	private static final int COLLECTION_LOG_ACTIVE_PAGE_VARBIT_ID = 6906;
+	private static final long COLLECTION_LOG_INIT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
 	private static final int COLLECTION_LOG_COMPLETED_PAGE_COLOR = 901389;
 
 	private static final String COLLECTION_LOG_TITLE = "Collection Log";
@@ -95,6 +99,8 @@ public class CollectionLogPlugin extends Plugin
 	private static final String COLLECTION_LOG_TARGET = "collection log";
 	private static final int COLLECTION_LOG_TARGET_INDEX = 2;
 	private static final String COLLECTION_LOG_EXPORT = "Export";
+	private static final String COLLECTION_LOG_EXPORT_SNAPSHOT = "Export snapshot";
+	private static final int COLLECTION_LOG_EXPORT_SNAPSHOT_COUNT = 10;
 	private static final String COLLECTION_LOG_COMMAND_STRING = "!log";
 	private static final List<String> COLLECTION_LOG_COMMAND_FILTERS = ImmutableList.of("missing", "obtained", "dupes");
 	private static final Pattern COLLECTION_LOG_COMMAND_PATTERN = Pattern.compile("!log\\s*(" + String.join("|", COLLECTION_LOG_COMMAND_FILTERS) + ")?\\s*([\\w\\s]+)?", Pattern.CASE_INSENSITIVE);
@@ -107,10 +113,22 @@ public class CollectionLogPlugin extends Plugin
 
 	@Setter
 	private boolean isCollectionLogDeleted = false;
+	private boolean isCollectionLogInitializing = false;
 	private boolean isUserLoggedIn = false;
 	private boolean userSettingsLoaded = false;
 	private boolean isPohOwner = false;
 
+	/*
+	 * Incremented for each init, so a dropped init doesn't clear the flag of a newer one
+	 */
+	private int collectionLogInitGeneration = 0;
+
+	/*
+	 * IDs of the current user's stored snapshots, oldest first. Listed on the executor so opening the menu
+	 * doesn't read the snapshot directory
+	 */
+	private volatile List<String> snapshotIds = new ArrayList<>();
+
 	private String obtainedItemName;
 	private Multiset<Integer> inventoryItems;
 	private Map<Integer, Integer> loadedCollectionLogIcons;
@@ -150,7 +168,22 @@ public class CollectionLogPlugin extends Plugin
 	private CollectionLogManager collectionLogManager;
 
 	@Inject
-	private JsonUtils jsonUtils;
+	private CollectionLogCatalog collectionLogCatalog;
+
+	@Inject
+	private CollectionLogPersistence collectionLogPersistence;
+
+	@Inject
+	private CollectionLogJournal collectionLogJournal;
+
+	@Inject
+	private CollectionLogAccountStore collectionLogAccountStore;
+
+	@Inject
+	private CollectionLogHistory collectionLogHistory;
+
+	@Inject
+	private CollectionLogSnapshotStore collectionLogSnapshotStore;
 
 	@Provides
 	CollectionLogConfig provideConfig(ConfigManager configManager)
@@ -167,14 +200,16 @@ public class CollectionLogPlugin extends Plugin
 			unsetOldConfigs();
 		}
 
+		collectionLogPersistence.startUp();
+
 		initPanel();
 		if (config.showCollectionLogSidePanel())
 		{
 			clientToolbar.addNavigation(navigationButton);
 		}
 
-		// Load all save files up front on executor thread to mitigate lag on log open
-		executor.submit(() -> collectionLogManager.loadCollectionLogFiles());
+		// Load the catalog up front on executor thread to mitigate lag on log open
+		executor.submit(() -> collectionLogCatalog.loadCatalogFile());
 
 		loadedCollectionLogIcons = new HashMap<>();
 		chatCommandManager.registerCommandAsync(COLLECTION_LOG_COMMAND_STRING, this::collectionLogLookup);
@@ -186,6 +221,9 @@ public class CollectionLogPlugin extends Plugin
 		destroyPanel();
 		chatCommandManager.unregisterCommand(COLLECTION_LOG_COMMAND_STRING);
 		loadedCollectionLogIcons.clear();
+
+		// Flush queued saves before the plugin is unloaded
+		collectionLogPersistence.shutDown();
 	}
 
 	private void initPanel()
@@ -272,7 +310,11 @@ public class CollectionLogPlugin extends Plugin
 			return;
 		}
 
-		collectionLogManager.setUsername(client.getLocalPlayer().getName());
+		String username = client.getLocalPlayer().getName();
+		collectionLogManager.setUsername(username);
+
+		// Load the save file ahead of the collection log being opened
+		collectionLogManager.loadCollectionLogFile(username);
 
 		executor.execute(() -> {
 			UserSettings userSettings = collectionLogManager.loadUserSettingsFile();
@@ -317,33 +359,140 @@ public class CollectionLogPlugin extends Plugin
 			return;
 		}
 
-		client.getMenu().createMenuEntry(1)
+		CollectionLogExportFormat exportFormat = config.exportFormat();
+		Menu exportMenu = client.getMenu().createMenuEntry(1)
 			.setOption(COLLECTION_LOG_EXPORT)
 			.setTarget(entryTarget)
 			.setType(MenuAction.RUNELITE)
-			.onClick(e -> {
-				boolean collectionLogSaved = collectionLogManager.saveCollectionLogFile(true);
-				if (collectionLogSaved)
-				{
-					String filePath = collectionLogManager.getExportFilePath();
-					String message = "Collection log exported to " + filePath;
+			.onClick(e -> exportCollectionLog(exportFormat, config.snapshotExports()))
+			.createSubMenu();
 
-					if (config.sendExportChatMessage())
-					{
-						String chatMessage = new ChatMessageBuilder()
-							.append(ChatColorType.HIGHLIGHT)
-							.append(message)
-							.build();
-
-						chatMessageManager.queue(
-							QueuedMessage.builder()
-								.type(ChatMessageType.CONSOLE)
-								.runeLiteFormattedMessage(chatMessage)
-								.build()
-						);
-					}
+		// Each format is exported to a file, the configured format is created last so it's shown first
+		for (CollectionLogExportFormat format : CollectionLogExportFormat.values())
+		{
+			if (format != exportFormat)
+			{
+				addExportFormatEntry(exportMenu, format);
+			}
+		}
+		addExportFormatEntry(exportMenu, exportFormat);
+
+		if (!config.snapshotExports() || snapshotIds.isEmpty())
+		{
+			return;
+		}
+
+		// Stored snapshots, newest first, are exported in the configured export format
+		Menu snapshotMenu = client.getMenu().createMenuEntry(1)
+			.setOption(COLLECTION_LOG_EXPORT_SNAPSHOT)
+			.setTarget(entryTarget)
+			.setType(MenuAction.RUNELITE)
+			.createSubMenu();
+
+		List<String> currentSnapshotIds = snapshotIds;
+		int oldestIndex = Math.max(0, currentSnapshotIds.size() - COLLECTION_LOG_EXPORT_SNAPSHOT_COUNT);
+		for (int i = oldestIndex; i < currentSnapshotIds.size(); i++)
+		{
+			String snapshotId = currentSnapshotIds.get(i);
+			snapshotMenu.createMenuEntry(-1)
+				.setOption(snapshotId)
+				.setType(MenuAction.RUNELITE)
+				.onClick(e -> exportCollectionLogSnapshot(snapshotId, exportFormat));
+		}
+	}
+
+	private void addExportFormatEntry(Menu exportMenu, CollectionLogExportFormat format)
+	{
+		exportMenu.createMenuEntry(-1)
+			.setOption(format.toString())
+			.setType(MenuAction.RUNELITE)
+			.onClick(e -> exportCollectionLog(format, false));
+	}
+
+	/**
+	 * Materialize a stored snapshot of the current user's collection log and write it as an export file
+	 *
+	 * @param snapshotId ID of the snapshot
+	 * @param exportFormat Format of the export file
+	 */
+	private void exportCollectionLogSnapshot(String snapshotId, CollectionLogExportFormat exportFormat)
+	{
+		if (!collectionLogManager.isInitialized())
+		{
+			return;
+		}
+
+		String username = collectionLogManager.getSnapshot().getUsername();
+		String filePath = collectionLogManager.getExportFilePath(exportFormat);
+		executor.execute(() -> {
+			CollectionLog collectionLog = collectionLogSnapshotStore.materialize(username, snapshotId);
+			if (collectionLog == null
+				|| !collectionLogManager.exportCollectionLogFile(collectionLog, filePath, exportFormat))
+			{
+				return;
+			}
+
+			sendExportChatMessage("Collection log snapshot " + snapshotId + " exported to " + filePath);
+		});
+	}
+
+	/**
+	 * Export the current collection log from a snapshot on the executor
+	 *
+	 * @param exportFormat Format of the export file
+	 * @param isSnapshot Whether to store the export in the snapshot store instead of an export file
+	 */
+	private void exportCollectionLog(CollectionLogExportFormat exportFormat, boolean isSnapshot)
+	{
+		CollectionLog collectionLog = collectionLogManager.updateSnapshot();
+		if (collectionLog == null)
+		{
+			return;
+		}
+
+		String filePath = collectionLogManager.getExportFilePath(exportFormat);
+		executor.execute(() -> {
+			String message;
+			if (isSnapshot)
+			{
+				String snapshotId = saveCollectionLogSnapshot(collectionLog);
+				if (snapshotId == null)
+				{
+					return;
 				}
-			});
+				message = "Collection log snapshot " + snapshotId + " saved";
+			}
+			else
+			{
+				if (!collectionLogManager.exportCollectionLogFile(collectionLog, filePath, exportFormat))
+				{
+					return;
+				}
+				message = "Collection log exported to " + filePath;
+			}
+
+			sendExportChatMessage(message);
+		});
+	}
+
+	private void sendExportChatMessage(String message)
+	{
+		if (!config.sendExportChatMessage())
+		{
+			return;
+		}
+
+		String chatMessage = new ChatMessageBuilder()
+			.append(ChatColorType.HIGHLIGHT)
+			.append(message)
+			.build();
+
+		chatMessageManager.queue(
+			QueuedMessage.builder()
+				.type(ChatMessageType.CONSOLE)
+				.runeLiteFormattedMessage(chatMessage)
+				.build()
+		);
 	}
 
 	@Subscribe
@@ -374,11 +523,49 @@ public class CollectionLogPlugin extends Plugin
 
 		if (widgetLoaded.getGroupId() == InterfaceID.COLLECTION_LOG)
 		{
-			if (!collectionLogManager.isInitialized())
+			if (collectionLogManager.isInitialized())
+			{
+				collectionLogManager.updateUniqueCounts();
+				return;
+			}
+
+			if (isCollectionLogInitializing)
 			{
-				collectionLogManager.initCollectionLog();
+				return;
 			}
-			collectionLogManager.updateUniqueCounts();
+
+			// Read the game cache over several frames, starting with the open tab, and build the log in the background
+			isCollectionLogInitializing = true;
+			snapshotIds = new ArrayList<>();
+			int initGeneration = ++collectionLogInitGeneration;
+			int activeTabIndex = client.getVarbitValue(COLLECTION_LOG_ACTIVE_TAB_VARBIT_ID);
+			clientThread.invokeLater(() -> {
+				if (!isCollectionLogInitializing)
+				{
+					return true;
+				}
+
+				return collectionLogManager.initCollectionLog(activeTabIndex, COLLECTION_LOG_INIT_BUDGET_NANOS, () -> {
+					// A newer init may have started if the user logged out while this one was building
+					if (initGeneration != collectionLogInitGeneration)
+					{
+						return;
+					}
+
+					// Allow init to be retried on the next log open if the build was dropped or failed
+					isCollectionLogInitializing = false;
+					if (!collectionLogManager.isInitialized())
+					{
+						return;
+					}
+
+					// The open page was drawn before init finished, pages are highlighted once it's read
+					getPage();
+
+					String username = collectionLogManager.getSnapshot().getUsername();
+					executor.execute(() -> snapshotIds = collectionLogSnapshotStore.getSnapshotIds(username));
+				});
+			});
 		}
 	}
 
@@ -534,57 +721,136 @@ public class CollectionLogPlugin extends Plugin
 			return;
 		}
 
-		boolean isSaved = collectionLogManager.saveCollectionLogFile(false);
-		isSaved = isSaved && collectionLogManager.saveUserSettingsFile();
-		String statusMessage = isSaved ? null : "Unable to save collection log data. Check Runelite logs for full error.";
-		collectionLogPanel.setStatus(statusMessage, isSaved, !config.allowApiConnections());
+		// Serialization, file writes and uploads happen off the client thread using an immutable snapshot.
+		// Files are written behind on the persistence thread so logging out and hopping never wait on disk
+		CollectionLog collectionLog = collectionLogManager.updateSnapshot();
+		UserSettings userSettings = collectionLogManager.getUserSettings();
+		boolean allowApiConnections = config.allowApiConnections();
 
-		if (!config.allowApiConnections() || !isSaved)
+		Runnable upload = null;
+		if (allowApiConnections && client.getAccountHash() != -1)
 		{
-			return;
+			Player localPlayer = client.getLocalPlayer();
+			String username = localPlayer.getName();
+			String accountHash = String.valueOf(client.getAccountHash());
+			String accountType = AccountType.valueOf(client.getVarbitValue(Varbits.ACCOUNT_TYPE)).toString();
+
+			// Used to display proper farming outfit on site
+			boolean isFemale = localPlayer.getPlayerComposition().getGender() == 1;
+
+			upload = () -> {
+				JsonObject collectionLogJson = collectionLogManager.getCollectionLogJsonObject(collectionLog);
+				JsonObject userSettingsJson = collectionLogManager.getUserSettingsJsonObject(userSettings);
+
+				uploadCollectionLog(username, accountType, accountHash, isFemale, userSettingsJson, collectionLogJson);
+			};
 		}
 
-		if (client.getAccountHash() == -1)
+		final Runnable uploadCollectionLog = upload;
+		boolean isSnapshot = config.snapshotExports();
+		collectionLogPersistence.save(collectionLog, userSettings).thenAccept(isSaved -> {
+			// Saves requested after the plugin shut down are rejected and have no panel to report to
+			CollectionLogPanel panel = collectionLogPanel;
+			if (panel != null)
+			{
+				String statusMessage = isSaved ? null : "Unable to save collection log data. Check Runelite logs for full error.";
+				panel.setStatus(statusMessage, isSaved, !allowApiConnections);
+			}
+
+			if (isSaved && isSnapshot)
+			{
+				executor.execute(() -> saveCollectionLogSnapshot(collectionLog));
+			}
+
+			if (uploadCollectionLog == null || !isSaved)
+			{
+				return;
+			}
+
+			uploadCollectionLog.run();
+		});
+	}
+
+	/**
+	 * Store a snapshot of a collection log and remove snapshots outside the configured retention
+	 *
+	 * @param collectionLog Collection log snapshot to store
+	 * @return ID of the stored snapshot, null if it couldn't be stored
+	 */
+	private String saveCollectionLogSnapshot(CollectionLog collectionLog)
+	{
+		String snapshotId = collectionLogSnapshotStore.saveSnapshot(collectionLog);
+		if (snapshotId != null)
 		{
-			return;
+			collectionLogSnapshotStore.applyRetention(
+				collectionLog.getUsername(),
+				config.snapshotKeepLatest(),
+				config.snapshotKeepDailyDays()
+			);
+			snapshotIds = collectionLogSnapshotStore.getSnapshotIds(collectionLog.getUsername());
 		}
+		return snapshotId;
+	}
 
-		Player localPlayer = client.getLocalPlayer();
-		String username = localPlayer.getName();
-		String accountHash = String.valueOf(client.getAccountHash());
-		String accountType = AccountType.valueOf(client.getVarbitValue(Varbits.ACCOUNT_TYPE)).toString();
+	/**
+	 * Journal a change to the current collection log, written in the background
+	 *
+	 * @param record Journal record of the change
+	 */
+	private void journalCollectionLogChange(CollectionLogJournal.Record record)
+	{
+		if (!collectionLogManager.isInitialized() || isCollectionLogDeleted || !isValidWorldType())
+		{
+			return;
+		}
 
-		// Used to display proper farming outfit on site
-		boolean isFemale = localPlayer.getPlayerComposition().getGender() == 1;
+		collectionLogPersistence.journal(collectionLogManager.getSnapshot(), collectionLogManager.getUserSettings(), record);
+	}
 
-		JsonObject collectionLogJson = collectionLogManager.getCollectionLogJsonObject();
-		JsonObject userSettingsJson = collectionLogManager.getUserSettingsJsonObject();
+	/**
+	 * Record a page's changes in the account's progress history, written in the background
+	 *
+	 * @param page Changed page
+	 */
+	private void recordCollectionLogHistory(CollectionLogPage page)
+	{
+		if (!collectionLogManager.isInitialized() || isCollectionLogDeleted || !isValidWorldType())
+		{
+			return;
+		}
 
-		uploadCollectionLog(username, accountType, accountHash, isFemale, userSettingsJson, collectionLogJson);
+		String username = collectionLogManager.getSnapshot().getUsername();
+		long timestamp = System.currentTimeMillis();
+		CollectionLogPage pageSnapshot = page.snapshot();
+		executor.execute(() -> collectionLogHistory.recordPage(username, timestamp, pageSnapshot));
 	}
 
 	/**
 	 * Retrieves and updates all items in the given entry
 	 *
 	 * @param pageHead Collection log entry to update
+	 * @return Whether the page was updated
 	 */
-	private void updatePage(Widget pageHead, CollectionLogPage pageToUpdate)
+	private boolean updatePage(Widget pageHead, CollectionLogPage pageToUpdate)
 	{
 		Widget itemsContainer = client.getWidget(ComponentID.COLLECTION_LOG_ENTRY_ITEMS);
 		if (itemsContainer == null)
 		{
-			return;
+			return false;
 		}
 
-		List<CollectionLogItem> items = pageToUpdate.getItems();
-		items.clear();
-
 		Widget[] widgetItems = itemsContainer.getDynamicChildren();
+		List<CollectionLogItem> items = new ArrayList<>(widgetItems.length);
+		int obtainedItemCount = 0;
 		for (Widget widgetItem : widgetItems)
 		{
 			String itemName = itemManager.getItemComposition(widgetItem.getItemId()).getMembersName();
 			boolean isObtained = widgetItem.getOpacity() == 0;
 			int quantity = isObtained ? widgetItem.getItemQuantity() : 0;
+			if (isObtained)
+			{
+				obtainedItemCount++;
+			}
 
 			items.add(new CollectionLogItem(
 				widgetItem.getItemId(),
@@ -600,26 +866,47 @@ public class CollectionLogPlugin extends Plugin
 			}
 		}
 
+		// Can happen when entries are opened in quick succession
+		// Item data in the widget doesn't load properly and obtained count shows as 0
+		if (obtainedItemCount < pageToUpdate.getObtainedItemCount())
+		{
+			return false;
+		}
+
+		collectionLogManager.updatePageItems(pageToUpdate, items);
+
 		Widget[] children = pageHead.getDynamicChildren();
 		if (children.length < 3)
 		{
 			// Page does not have kill count widgets, mark as updated and early return
 			pageToUpdate.setUpdated(true);
-			return;
+			return true;
 		}
 
-		List<CollectionLogKillCount> killCounts = pageToUpdate.getKillCounts();
-		killCounts.clear();
+		List<CollectionLogKillCount> killCounts = new ArrayList<>();
 
 		Widget[] killCountWidgets = Arrays.copyOfRange(children, 2, children.length);
 		for (Widget killCountWidget : killCountWidgets)
 		{
 			String killCountString = killCountWidget.getText();
 			CollectionLogKillCount killCount = CollectionLogKillCount.fromString(killCountString, killCounts.size());
+			if (killCount == null)
+			{
+				// Keep the saved amount instead of overwriting it with a bad parse
+				log.warn("Unable to parse kill count: " + killCountString);
+				CollectionLogKillCount savedKillCount = pageToUpdate.getKillCountByName(CollectionLogKillCount.parseName(killCountString));
+				if (savedKillCount == null)
+				{
+					continue;
+				}
+				killCount = new CollectionLogKillCount(savedKillCount.getName(), savedKillCount.getAmount(), killCounts.size());
+			}
 			killCounts.add(killCount);
 		}
+		pageToUpdate.setKillCounts(killCounts);
 
 		pageToUpdate.setUpdated(true);
+		return true;
 	}
 
 	/**
@@ -670,34 +957,14 @@ public class CollectionLogPlugin extends Plugin
 			return;
 		}
 
-		int prevObtainedItemCount = pageToUpdate.getObtainedItemCount();
-
-		updatePage(pageHead, pageToUpdate);
-
-		int newObtainedItemCount = pageToUpdate.getObtainedItemCount();
-
-		if (collectionLogManager.getTabByName(activeTabName) != null)
+		if (!updatePage(pageHead, pageToUpdate))
 		{
-			// Can happen when entries are opened in quick succession
-			// Item data in the widget doesn't load properly and obtained count shows as 0
-			if (prevObtainedItemCount > newObtainedItemCount)
-			{
-				return;
-			}
-		}
-
-		if (prevObtainedItemCount == newObtainedItemCount)
-		{
-			update();
 			return;
 		}
 
-		CollectionLog collectionLog = collectionLogManager.getCollectionLog();
-
-		int prevTotalObtained = collectionLog.getTotalObtained();
-		int newTotalObtained = prevTotalObtained + (newObtainedItemCount - prevObtainedItemCount);
-		collectionLog.setTotalObtained(newTotalObtained);
-
+		collectionLogManager.updateSnapshot();
+		journalCollectionLogChange(collectionLogJournal.pageRecord(pageToUpdate));
+		recordCollectionLogHistory(pageToUpdate);
 		update();
 	}
 
@@ -718,6 +985,10 @@ public class CollectionLogPlugin extends Plugin
 			String pageName = pageNameWidget.getText()
 				.replace(" *", "");
 			CollectionLogPage collectionLogPage = collectionLogManager.getPageByName(pageName);
+			if (collectionLogPage == null)
+			{
+				continue;
+			}
 
 			if (!collectionLogPage.isUpdated())
 			{
@@ -857,7 +1128,6 @@ public class CollectionLogPlugin extends Plugin
 	 */
 	private void update()
 	{
-		collectionLogManager.updateTotalItems();
 		setCollectionLogTitle();
 
 		highlightPages();
@@ -915,6 +1185,43 @@ public class CollectionLogPlugin extends Plugin
 		String localPlayerName = client.getLocalPlayer().getName();
 		String username = Text.sanitize(chatMessage.getName());
 
+		// Because outgoing private messages display the recipient's name use the logged-in user instead
+		if (chatMessage.getType().equals(ChatMessageType.PRIVATECHATOUT))
+		{
+			username = localPlayerName;
+		}
+
+		// The current user is answered from their live collection log, which is newer than any save
+		CollectionLog snapshot = collectionLogManager.getSnapshot();
+		if (snapshot != null && username.equalsIgnoreCase(snapshot.getUsername()))
+		{
+			clientThread.invoke(() -> replaceCommandMessage(chatMessage, message, snapshot));
+			return;
+		}
+
+		String lookupUsername = username;
+		executor.execute(() -> collectionLogLookup(chatMessage, message, lookupUsername, localPlayerName));
+	}
+
+	/**
+	 * Looks up a !log command's user in the local account store, then the API. Run on the executor since
+	 * the account store reads from disk
+	 *
+	 * @param chatMessage The ChatMessage event
+	 * @param message Text of the message
+	 * @param username Username of the user triggering the command
+	 * @param localPlayerName Name of the logged-in user
+	 */
+	private void collectionLogLookup(ChatMessage chatMessage, String message, String username, String localPlayerName)
+	{
+		// Accounts played on this machine are answered from their local save without a request
+		CollectionLogAccountStore.Account localAccount = collectionLogAccountStore.getAccount(username);
+		if (localAccount != null)
+		{
+			clientThread.invoke(() -> replaceCommandMessage(chatMessage, message, localAccount));
+			return;
+		}
+
 		if (!config.allowApiConnections())
 		{
 			// When logged-in user triggers the command and doesn't allow API connections then give them an error
@@ -926,12 +1233,6 @@ public class CollectionLogPlugin extends Plugin
 		}
 		clientThread.invoke(() -> updateChatMessage(chatMessage, "Loading..."));
 
-		// Because outgoing private messages display the recipient's name use the logged-in user instead
-		if (chatMessage.getType().equals(ChatMessageType.PRIVATECHATOUT))
-		{
-			username = localPlayerName;
-		}
-
 		try
 		{
 			apiClient.getCollectionLog(username, new Callback()
@@ -946,20 +1247,15 @@ public class CollectionLogPlugin extends Plugin
 				@Override
 				public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException
 				{
-					JsonObject collectionLogJson = apiClient.processResponse(response);
+					CollectionLog collectionLog = apiClient.processCollectionLogResponse(response);
 					response.close();
 
-					if (collectionLogJson == null)
+					if (collectionLog == null)
 					{
 						clientThread.invoke(() -> updateChatMessage(chatMessage, "No Collection Log data found for user."));
 						return;
 					}
 
-					CollectionLog collectionLog = jsonUtils.fromJsonObject(
-						collectionLogJson.getAsJsonObject("collectionLog"),
-						CollectionLog.class,
-						new CollectionLogDeserializer()
-					);
 					clientThread.invoke(() -> replaceCommandMessage(chatMessage, message, collectionLog));
 				}
 			});
@@ -980,6 +1276,44 @@ public class CollectionLogPlugin extends Plugin
 	 * @param collectionLog Collection log data of the user triggering the command
 	 */
 	private void replaceCommandMessage(ChatMessage chatMessage, String message, CollectionLog collectionLog)
+	{
+		replaceCommandMessage(
+			chatMessage,
+			message,
+			collectionLog.getUniqueObtained(),
+			collectionLog.getUniqueItems(),
+			collectionLog::searchForPage,
+			collectionLog::randomPage
+		);
+	}
+
+	/**
+	 * Replace a command message using a collection log saved by an account on this machine
+	 *
+	 * @param chatMessage The ChatMessage event
+	 * @param message Text of the message that triggered the command
+	 * @param account Saved collection log of the user triggering the command
+	 */
+	private void replaceCommandMessage(ChatMessage chatMessage, String message, CollectionLogAccountStore.Account account)
+	{
+		replaceCommandMessage(
+			chatMessage,
+			message,
+			account.getUniqueObtained(),
+			account.getUniqueItems(),
+			account::searchForPage,
+			account::randomPage
+		);
+	}
+
+	private void replaceCommandMessage(
+		ChatMessage chatMessage,
+		String message,
+		int uniqueObtained,
+		int uniqueItems,
+		Function<String, CollectionLogPage> searchForPage,
+		Supplier<CollectionLogPage> randomPage
+	)
 	{
 		Matcher commandMatcher = COLLECTION_LOG_COMMAND_PATTERN.matcher(message);
 		if (!commandMatcher.matches())
@@ -992,7 +1326,7 @@ public class CollectionLogPlugin extends Plugin
 		// Display the total unique items obtained when no page is specified
 		if (commandPage == null)
 		{
-			String output = "Collection Log: " + collectionLog.getUniqueObtained() + "/" + collectionLog.getUniqueItems();
+			String output = "Collection Log: " + uniqueObtained + "/" + uniqueItems;
 			updateChatMessage(chatMessage, output);
 			return;
 		}
@@ -1000,13 +1334,13 @@ public class CollectionLogPlugin extends Plugin
 		// Display a random collection log page for the keyword 'any'
 		if (commandPage.equals("any"))
 		{
-			String output = buildCommandOutput(collectionLog.randomPage(), commandFilter);
+			String output = buildCommandOutput(randomPage.get(), commandFilter);
 			updateChatMessage(chatMessage, output);
 			return;
 		}
 
 		String pageArgument = CollectionLogPage.aliasPageName(commandPage);
-		CollectionLogPage collectionLogPage = collectionLog.searchForPage(pageArgument);
+		CollectionLogPage collectionLogPage = searchForPage.apply(pageArgument);
 
 		// Display an error when no matching page could be found
 		if (collectionLogPage == null)
@@ -1124,9 +1458,17 @@ public class CollectionLogPlugin extends Plugin
 	 */
 	private void updateObtainedItem(ItemStack itemStack)
 	{
-		boolean itemUpdated = collectionLogManager.updateObtainedItem(itemStack);
+		List<CollectionLogPage> updatedPages = collectionLogManager.updateObtainedItem(itemStack);
 
-		if (!itemUpdated)
+		if (!updatedPages.isEmpty())
+		{
+			for (CollectionLogPage page : updatedPages)
+			{
+				journalCollectionLogChange(collectionLogJournal.itemRecord(page, page.getItemById(itemStack.getId())));
+				recordCollectionLogHistory(page);
+			}
+		}
+		else
 		{
 			collectionLogPanel.setStatus(
 				"Unable to update data for item \"" + obtainedItemName + "\". Open the collection log page(s)" +
@@ -1190,6 +1532,7 @@ public class CollectionLogPlugin extends Plugin
 	private void resetFlags()
 	{
 		isUserLoggedIn = false;
+		isCollectionLogInitializing = false;
 		isCollectionLogDeleted = false;
 		userSettingsLoaded = false;
 	}
@@ -0,0 +1,455 @@
+package com.evansloan.collectionlog;
+
+import com.evansloan.collectionlog.util.CollectionLogItemAdapter;
+import com.evansloan.collectionlog.util.CollectionLogKillCountAdapter;
+import com.evansloan.collectionlog.util.JsonUtils;
+import com.google.common.hash.Hashing;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import static net.runelite.client.RuneLite.RUNELITE_DIR;
+
+/**
+ * Content-addressed store of collection log snapshots. Pages and tabs are stored once per distinct content,
+ * named by the SHA-256 hash of their contents. A tab lists the hash of each of its pages, and each snapshot is
+ * a small manifest of the collection log totals and tab hashes, so storing a snapshot only adds the pages and
+ * tabs that changed since any earlier snapshot
+ */
+@Slf4j
+@Singleton
+public class CollectionLogSnapshotStore
+{
+	private static final File SNAPSHOT_DIR = new File(new File(RUNELITE_DIR, "collectionlog"), "snapshots");
+	private static final String PAGES_DIR = "pages";
+	private static final String TABS_DIR = "tabs";
+	private static final String MANIFESTS_DIR = "manifests";
+	private static final String FILE_EXTENSION = ".json";
+	private static final String SNAPSHOT_ID_FORMAT = "yyyyMMdd'T'HHmmss";
+
+	private static final String PAGE_NAME_KEY = "name";
+	private static final String PAGE_IS_UPDATED_KEY = "isUpdated";
+	private static final String PAGE_ITEMS_KEY = "items";
+	private static final String PAGE_KILL_COUNTS_KEY = "killCounts";
+
+	@Inject
+	JsonUtils jsonUtils;
+
+	private final CollectionLogItemAdapter itemAdapter = new CollectionLogItemAdapter();
+	private final CollectionLogKillCountAdapter killCountAdapter = new CollectionLogKillCountAdapter();
+
+	/*
+	 * Page snapshots to their hashes. Page snapshots are reused until the page changes,
+	 * so unchanged pages aren't serialized again. Guarded by this
+	 */
+	private final Map<CollectionLogPage, String> pageHashes = new WeakHashMap<>();
+
+	/**
+	 * Store a snapshot of a collection log, writing only pages that aren't already stored
+	 *
+	 * @param collectionLog Collection log snapshot to store
+	 * @return ID of the snapshot, null if it couldn't be stored
+	 */
+	public synchronized String saveSnapshot(CollectionLog collectionLog)
+	{
+		File snapshotDir = getSnapshotDir(collectionLog.getUsername());
+		File pagesDir = new File(snapshotDir, PAGES_DIR);
+		File tabsDir = new File(snapshotDir, TABS_DIR);
+		File manifestsDir = new File(snapshotDir, MANIFESTS_DIR);
+		pagesDir.mkdirs();
+		tabsDir.mkdirs();
+		manifestsDir.mkdirs();
+
+		Manifest manifest = new Manifest();
+		manifest.timestamp = System.currentTimeMillis();
+		manifest.uniqueObtained = collectionLog.getUniqueObtained();
+		manifest.uniqueItems = collectionLog.getUniqueItems();
+
+		try
+		{
+			for (Map.Entry<String, CollectionLogTab> tab : collectionLog.getTabs().entrySet())
+			{
+				Map<String, String> pageHashesByName = new LinkedHashMap<>();
+				for (Map.Entry<String, CollectionLogPage> page : tab.getValue().getPages().entrySet())
+				{
+					String pageHash = pageHashes.get(page.getValue());
+					if (pageHash == null || !new File(pagesDir, pageHash + FILE_EXTENSION).exists())
+					{
+						pageHash = writeObjectFile(pagesDir, writePage(page.getValue()));
+						pageHashes.put(page.getValue(), pageHash);
+					}
+					pageHashesByName.put(page.getKey(), pageHash);
+				}
+				manifest.tabs.put(tab.getKey(), writeObjectFile(tabsDir, writeTab(pageHashesByName)));
+			}
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to store collection log snapshot in: " + snapshotDir.getPath() + "\n" + e.getMessage());
+			return null;
+		}
+
+		// Snapshots taken within the same second get a numbered suffix, which sorts after the unsuffixed ID
+		String snapshotTime = new SimpleDateFormat(SNAPSHOT_ID_FORMAT).format(new Date(manifest.timestamp));
+		String snapshotId = snapshotTime;
+		for (int suffix = 1; new File(manifestsDir, snapshotId + FILE_EXTENSION).exists(); suffix++)
+		{
+			snapshotId = String.format("%s-%03d", snapshotTime, suffix);
+		}
+
+		if (!jsonUtils.writeJsonFile(new File(manifestsDir, snapshotId + FILE_EXTENSION).getPath(), manifest))
+		{
+			return null;
+		}
+
+		return snapshotId;
+	}
+
+	/**
+	 * Get the IDs of a user's stored snapshots
+	 *
+	 * @param username Username of the account
+	 * @return Snapshot IDs, oldest first
+	 */
+	public synchronized List<String> getSnapshotIds(String username)
+	{
+		String[] manifestFiles = new File(getSnapshotDir(username), MANIFESTS_DIR)
+			.list((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (manifestFiles == null)
+		{
+			return new ArrayList<>();
+		}
+
+		// Sorted without the extension so suffixed IDs sort after the ID they share a second with
+		List<String> snapshotIds = new ArrayList<>(manifestFiles.length);
+		for (String manifestFile : manifestFiles)
+		{
+			snapshotIds.add(manifestFile.substring(0, manifestFile.length() - FILE_EXTENSION.length()));
+		}
+		Collections.sort(snapshotIds);
+		return snapshotIds;
+	}
+
+	/**
+	 * Rebuild a stored snapshot as a collection log, e.g. to write it in the JSON export format
+	 *
+	 * @param username Username of the account
+	 * @param snapshotId ID of the snapshot
+	 * @return Collection log, null if the snapshot or one of its pages couldn't be read
+	 */
+	public synchronized CollectionLog materialize(String username, String snapshotId)
+	{
+		File snapshotDir = getSnapshotDir(username);
+		Manifest manifest = readManifest(snapshotDir, snapshotId);
+		if (manifest == null)
+		{
+			return null;
+		}
+
+		File pagesDir = new File(snapshotDir, PAGES_DIR);
+		File tabsDir = new File(snapshotDir, TABS_DIR);
+		Map<String, CollectionLogTab> tabs = new LinkedHashMap<>();
+		try
+		{
+			for (Map.Entry<String, String> tab : manifest.tabs.entrySet())
+			{
+				Map<String, CollectionLogPage> pages = new LinkedHashMap<>();
+				for (Map.Entry<String, String> page : readTab(readObjectFile(tabsDir, tab.getValue())).entrySet())
+				{
+					pages.put(page.getKey(), readPage(readObjectFile(pagesDir, page.getValue())));
+				}
+				tabs.put(tab.getKey(), new CollectionLogTab(tab.getKey(), pages));
+			}
+		}
+		catch (IOException | IllegalStateException | NumberFormatException e)
+		{
+			log.error("Unable to read collection log snapshot " + snapshotId + " in: " + snapshotDir.getPath() + "\n" + e.getMessage());
+			return null;
+		}
+
+		return new CollectionLog(username, manifest.uniqueObtained, manifest.uniqueItems, tabs);
+	}
+
+	/**
+	 * Delete snapshots outside the retention policy, then delete tabs and pages no remaining snapshot references.
+	 * The latest snapshots are kept, as well as the latest snapshot of each day within the daily retention period
+	 *
+	 * @param username Username of the account
+	 * @param keepLatest Number of latest snapshots to keep
+	 * @param keepDailyDays Number of days to keep one snapshot per day for
+	 */
+	public synchronized void applyRetention(String username, int keepLatest, int keepDailyDays)
+	{
+		File snapshotDir = getSnapshotDir(username);
+		File manifestsDir = new File(snapshotDir, MANIFESTS_DIR);
+		List<String> snapshotIds = getSnapshotIds(username);
+
+		SimpleDateFormat snapshotIdFormat = new SimpleDateFormat(SNAPSHOT_ID_FORMAT);
+		long dailyCutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(keepDailyDays);
+		Set<String> keptDays = new HashSet<>();
+		Set<String> keptSnapshotIds = new HashSet<>();
+
+		// Snapshot IDs sort by time, walk newest first
+		for (int i = snapshotIds.size() - 1; i >= 0; i--)
+		{
+			String snapshotId = snapshotIds.get(i);
+			boolean isLatest = snapshotIds.size() - i <= keepLatest;
+			boolean isKeptDaily = false;
+			try
+			{
+				isKeptDaily = snapshotIdFormat.parse(snapshotId).getTime() >= dailyCutoff
+					&& keptDays.add(snapshotId.substring(0, snapshotId.indexOf('T')));
+			}
+			catch (ParseException e)
+			{
+				log.warn("Unexpected collection log snapshot name: " + snapshotId);
+			}
+
+			if (isLatest || isKeptDaily)
+			{
+				keptSnapshotIds.add(snapshotId);
+				continue;
+			}
+
+			new File(manifestsDir, snapshotId + FILE_EXTENSION).delete();
+		}
+
+		File tabsDir = new File(snapshotDir, TABS_DIR);
+		Set<String> referencedTabs = new HashSet<>();
+		Set<String> referencedPages = new HashSet<>();
+		try
+		{
+			for (String snapshotId : keptSnapshotIds)
+			{
+				Manifest manifest = readManifest(snapshotDir, snapshotId);
+				if (manifest == null)
+				{
+					throw new IOException("Unable to read manifest " + snapshotId);
+				}
+
+				for (String tabHash : manifest.tabs.values())
+				{
+					if (referencedTabs.add(tabHash))
+					{
+						referencedPages.addAll(readTab(readObjectFile(tabsDir, tabHash)).values());
+					}
+				}
+			}
+		}
+		catch (IOException | IllegalStateException e)
+		{
+			// Keep everything rather than delete objects an unreadable snapshot may reference
+			log.error("Unable to apply collection log snapshot retention in: " + snapshotDir.getPath() + "\n" + e.getMessage());
+			return;
+		}
+
+		deleteUnreferencedObjects(tabsDir, referencedTabs);
+		deleteUnreferencedObjects(new File(snapshotDir, PAGES_DIR), referencedPages);
+		pageHashes.values().retainAll(referencedPages);
+	}
+
+	private void deleteUnreferencedObjects(File objectsDir, Set<String> referencedHashes)
+	{
+		File[] objectFiles = objectsDir.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (objectFiles == null)
+		{
+			return;
+		}
+
+		for (File objectFile : objectFiles)
+		{
+			String hash = objectFile.getName().substring(0, objectFile.getName().length() - FILE_EXTENSION.length());
+			if (!referencedHashes.contains(hash))
+			{
+				objectFile.delete();
+			}
+		}
+	}
+
+	File getSnapshotDir(String username)
+	{
+		return new File(SNAPSHOT_DIR, username);
+	}
+
+	private Manifest readManifest(File snapshotDir, String snapshotId)
+	{
+		File manifestFile = new File(new File(snapshotDir, MANIFESTS_DIR), snapshotId + FILE_EXTENSION);
+		if (!manifestFile.exists())
+		{
+			return null;
+		}
+		return jsonUtils.readJsonFile(manifestFile.getPath(), Manifest.class);
+	}
+
+	/**
+	 * Store an object named by the hash of its contents, unless an object with the same contents is already stored
+	 *
+	 * @param objectsDir Directory of the objects
+	 * @param contents Object contents
+	 * @return Hash of the object
+	 */
+	private String writeObjectFile(File objectsDir, String contents) throws IOException
+	{
+		byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+		String hash = Hashing.sha256().hashBytes(bytes).toString();
+		File objectFile = new File(objectsDir, hash + FILE_EXTENSION);
+		if (objectFile.exists())
+		{
+			return hash;
+		}
+
+		File tempFile = new File(objectFile.getPath() + ".tmp");
+		Files.write(tempFile.toPath(), bytes);
+		try
+		{
+			Files.move(tempFile.toPath(), objectFile.toPath());
+		}
+		catch (FileAlreadyExistsException e)
+		{
+			tempFile.delete();
+		}
+		return hash;
+	}
+
+	private String readObjectFile(File objectsDir, String hash) throws IOException
+	{
+		return new String(Files.readAllBytes(new File(objectsDir, hash + FILE_EXTENSION).toPath()), StandardCharsets.UTF_8);
+	}
+
+	private String writeTab(Map<String, String> pageHashesByName) throws IOException
+	{
+		StringWriter contents = new StringWriter();
+		try (JsonWriter out = new JsonWriter(contents))
+		{
+			// Pages are written in name order so a tab's hash doesn't depend on map iteration order
+			out.beginObject();
+			for (Map.Entry<String, String> page : new TreeMap<>(pageHashesByName).entrySet())
+			{
+				out.name(page.getKey()).value(page.getValue());
+			}
+			out.endObject();
+		}
+		return contents.toString();
+	}
+
+	private Map<String, String> readTab(String contents) throws IOException
+	{
+		Map<String, String> pageHashesByName = new LinkedHashMap<>();
+		try (JsonReader in = new JsonReader(new StringReader(contents)))
+		{
+			in.beginObject();
+			while (in.hasNext())
+			{
+				pageHashesByName.put(in.nextName(), in.nextString());
+			}
+			in.endObject();
+		}
+		return pageHashesByName;
+	}
+
+	private String writePage(CollectionLogPage page) throws IOException
+	{
+		StringWriter contents = new StringWriter();
+		try (JsonWriter out = new JsonWriter(contents))
+		{
+			out.beginObject();
+			out.name(PAGE_NAME_KEY).value(page.getName());
+			out.name(PAGE_IS_UPDATED_KEY).value(page.isUpdated());
+
+			out.name(PAGE_ITEMS_KEY).beginArray();
+			for (CollectionLogItem item : page.getItems())
+			{
+				itemAdapter.write(out, item);
+			}
+			out.endArray();
+
+			out.name(PAGE_KILL_COUNTS_KEY).beginArray();
+			for (CollectionLogKillCount killCount : page.getKillCounts())
+			{
+				killCountAdapter.write(out, killCount);
+			}
+			out.endArray();
+
+			out.endObject();
+		}
+		return contents.toString();
+	}
+
+	private CollectionLogPage readPage(String contents) throws IOException
+	{
+		String name = null;
+		boolean isUpdated = false;
+		List<CollectionLogItem> items = new ArrayList<>();
+		List<CollectionLogKillCount> killCounts = new ArrayList<>();
+
+		try (JsonReader in = new JsonReader(new StringReader(contents)))
+		{
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case PAGE_NAME_KEY:
+						name = in.nextString();
+						break;
+					case PAGE_IS_UPDATED_KEY:
+						isUpdated = in.nextBoolean();
+						break;
+					case PAGE_ITEMS_KEY:
+						in.beginArray();
+						while (in.hasNext())
+						{
+							items.add(itemAdapter.read(in));
+						}
+						in.endArray();
+						break;
+					case PAGE_KILL_COUNTS_KEY:
+						in.beginArray();
+						while (in.hasNext())
+						{
+							killCounts.add(killCountAdapter.read(in));
+						}
+						in.endArray();
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+		}
+
+		return new CollectionLogPage(name, items, killCounts, isUpdated);
+	}
+
+	/**
+	 * A stored snapshot: collection log totals and the hash of each tab by tab name
+	 */
+	private static class Manifest
+	{
+		private long timestamp;
+		private int uniqueObtained;
+		private int uniqueItems;
+		private Map<String, String> tabs = new LinkedHashMap<>();
+	}
+}
@@ -1,10 +1,9 @@
 package com.evansloan.collectionlog;
 
-import lombok.AllArgsConstructor;
+import com.google.common.collect.ImmutableMap;
 import lombok.Getter;
 import java.util.Map;
 
-@AllArgsConstructor
 public class CollectionLogTab
 {
     @Getter
@@ -13,8 +12,119 @@ public class CollectionLogTab
     @Getter
     private final Map<String, CollectionLogPage> pages;
 
+    @Getter
+    private int obtainedItemCount;
+
+    @Getter
+    private int itemCount;
+
+    private CollectionLog collectionLog;
+
+    private CollectionLogTab snapshot;
+
+    public CollectionLogTab(String name, Map<String, CollectionLogPage> pages)
+    {
+        this.name = name;
+        this.pages = pages;
+
+        for (CollectionLogPage page : pages.values())
+        {
+            page.setTab(this);
+            obtainedItemCount += page.getObtainedItemCount();
+            itemCount += page.getItems().size();
+        }
+    }
+
+    /**
+     * Create a snapshot of a tab. Page snapshots may be shared with earlier tab snapshots, so they aren't re-parented
+     *
+     * @param tab Tab to snapshot
+     * @param pages Page snapshots
+     */
+    private CollectionLogTab(CollectionLogTab tab, Map<String, CollectionLogPage> pages)
+    {
+        this.name = tab.name;
+        this.pages = pages;
+        this.obtainedItemCount = tab.obtainedItemCount;
+        this.itemCount = tab.itemCount;
+        this.snapshot = this;
+    }
+
     public boolean containsPage(String pageName)
     {
         return pages.containsKey(pageName);
     }
+
+    /**
+     * Get an immutable copy of the tab, only copying pages modified since the last snapshot
+     *
+     * @return Immutable copy of the tab
+     */
+    public CollectionLogTab snapshot()
+    {
+        if (snapshot != null)
+        {
+            return snapshot;
+        }
+
+        ImmutableMap.Builder<String, CollectionLogPage> pagesCopy = ImmutableMap.builder();
+        for (Map.Entry<String, CollectionLogPage> page : pages.entrySet())
+        {
+            pagesCopy.put(page.getKey(), page.getValue().snapshot());
+        }
+
+        snapshot = new CollectionLogTab(this, pagesCopy.build());
+        return snapshot;
+    }
+
+    void invalidateSnapshot()
+    {
+        if (snapshot == null || snapshot == this)
+        {
+            return;
+        }
+
+        snapshot = null;
+        if (collectionLog != null)
+        {
+            collectionLog.invalidateSnapshot();
+        }
+    }
+
+    void setCollectionLog(CollectionLog collectionLog)
+    {
+        this.collectionLog = collectionLog;
+    }
+
+    /**
+     * Apply a change in a page's item counts to the tab and collection log totals
+     *
+     * @param obtainedDelta Change in obtained items
+     * @param itemDelta Change in total items
+     */
+    void updateCounts(int obtainedDelta, int itemDelta)
+    {
+        obtainedItemCount += obtainedDelta;
+        itemCount += itemDelta;
+
+        if (collectionLog != null)
+        {
+            collectionLog.updateCounts(obtainedDelta, itemDelta);
+        }
+    }
+
+    /**
+     * Apply a change in an item's obtained state to the collection log's missing item index
+     *
+     * @param page Page containing the item
+     * @param slot Position of the item in the page
+     * @param obtained Whether the item is now obtained
+     */
+    void updateItemObtained(CollectionLogPage page, int slot, boolean obtained)
+    {
+        if (collectionLog != null)
+        {
+            collectionLog.updateMissingItem(page, slot, obtained);
+        }
+    }
 }
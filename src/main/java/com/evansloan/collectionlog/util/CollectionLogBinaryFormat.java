@@ -0,0 +1,426 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogCatalog;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogPageDefinition;
+import com.evansloan.collectionlog.CollectionLogTab;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compact binary save format for collection logs.
+ *
+ * <pre>
+ * magic "CLOG", varint version
+ * varint string count, strings as varint UTF-8 length + bytes
+ * varint unique obtained, varint unique items, varint tab count
+ * per tab:  varint name, varint page count
+ * per page: varint name, flags byte, varint item count,
+ *           per item varint id, varint name, varint sequence, varint quantity,
+ *           obtained flags packed 8 items per byte,
+ *           varint kill count count, per kill count varint name, varint amount, varint sequence
+ * </pre>
+ *
+ * Names are indexes into the string table. Kill count amounts are zigzag encoded since they may be negative.
+ * Counts are checked against the bytes left in the file before anything is allocated for them
+ */
+@Slf4j
+public class CollectionLogBinaryFormat
+{
+	private static final byte[] MAGIC = {'C', 'L', 'O', 'G'};
+	private static final int VERSION = 2;
+
+	/*
+	 * Version 1 didn't store item sequences, items were read in sequence order
+	 */
+	private static final int VERSION_WITHOUT_SEQUENCES = 1;
+
+	private static final int PAGE_FLAG_IS_UPDATED = 1;
+
+	private final CollectionLogCatalog collectionLogCatalog;
+
+	public CollectionLogBinaryFormat()
+	{
+		this(null);
+	}
+
+	/**
+	 * @param collectionLogCatalog Catalog to share page definitions through, may be null
+	 */
+	public CollectionLogBinaryFormat(CollectionLogCatalog collectionLogCatalog)
+	{
+		this.collectionLogCatalog = collectionLogCatalog;
+	}
+
+	/**
+	 * Read a collection log from a binary save file
+	 *
+	 * @param filePath Path of the file to read
+	 * @return Collection log, null if the file couldn't be read
+	 */
+	public CollectionLog readFile(String filePath)
+	{
+		try
+		{
+			byte[] data;
+			try (InputStream in = JsonUtils.openFileInputStream(filePath))
+			{
+				data = ByteStreams.toByteArray(in);
+			}
+			return read(data);
+		}
+		catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e)
+		{
+			log.error("Unable to read save file at path: " + filePath + "\n" + e.getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Write a collection log to a binary save file, replacing the file once fully written
+	 *
+	 * @param filePath Path of the file to write
+	 * @param collectionLog Collection log to write
+	 * @return Whether the file was written
+	 */
+	public boolean writeFile(String filePath, CollectionLog collectionLog)
+	{
+		return writeFile(filePath, collectionLog, false);
+	}
+
+	/**
+	 * Write a collection log to a binary save file, optionally gzip compressed. Compressed files are detected on read
+	 *
+	 * @param filePath Path of the file to write
+	 * @param collectionLog Collection log to write
+	 * @param compressed Whether to gzip the file
+	 * @return Whether the file was written
+	 */
+	public boolean writeFile(String filePath, CollectionLog collectionLog, boolean compressed)
+	{
+		File tempFile = JsonUtils.getTempFile(filePath);
+		try
+		{
+			try (DataOutputStream out = new DataOutputStream(JsonUtils.openFileOutputStream(tempFile, compressed)))
+			{
+				write(out, collectionLog);
+			}
+			JsonUtils.replaceFile(tempFile, filePath);
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to write save file at path: " + filePath + "\n" + e.getMessage());
+			tempFile.delete();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Convert a JSON save file to a binary save file, deleting the JSON file once converted
+	 *
+	 * @param jsonUtils JSON utils to read the JSON file with
+	 * @param jsonFilePath Path of the JSON file to convert
+	 * @param filePath Path of the binary file to write
+	 * @param compressed Whether to gzip the binary file
+	 * @return Collection log read from the JSON file, null if it couldn't be read
+	 */
+	public CollectionLog migrateJsonFile(JsonUtils jsonUtils, String jsonFilePath, String filePath, boolean compressed)
+	{
+		CollectionLog collectionLog = jsonUtils.readJsonFile(jsonFilePath, new CollectionLogTypeAdapter(collectionLogCatalog));
+		if (collectionLog == null)
+		{
+			return null;
+		}
+
+		if (writeFile(filePath, collectionLog, compressed) && !new File(jsonFilePath).delete())
+		{
+			log.error("Unable to delete migrated collection log save file: " + jsonFilePath);
+		}
+		return collectionLog;
+	}
+
+	public void write(DataOutputStream out, CollectionLog collectionLog) throws IOException
+	{
+		Map<String, Integer> stringTable = buildStringTable(collectionLog);
+
+		out.write(MAGIC);
+		writeVarInt(out, VERSION);
+
+		writeVarInt(out, stringTable.size());
+		for (String string : stringTable.keySet())
+		{
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(out, bytes.length);
+			out.write(bytes);
+		}
+
+		writeVarInt(out, collectionLog.getUniqueObtained());
+		writeVarInt(out, collectionLog.getUniqueItems());
+
+		Map<String, CollectionLogTab> tabs = collectionLog.getTabs();
+		writeVarInt(out, tabs.size());
+		for (Map.Entry<String, CollectionLogTab> tab : tabs.entrySet())
+		{
+			Map<String, CollectionLogPage> pages = tab.getValue().getPages();
+			writeVarInt(out, stringTable.get(tab.getKey()));
+			writeVarInt(out, pages.size());
+
+			for (Map.Entry<String, CollectionLogPage> page : pages.entrySet())
+			{
+				writeVarInt(out, stringTable.get(page.getKey()));
+				writePage(out, page.getValue(), stringTable);
+			}
+		}
+	}
+
+	private void writePage(DataOutputStream out, CollectionLogPage page, Map<String, Integer> stringTable) throws IOException
+	{
+		CollectionLogPageDefinition definition = page.getDefinition();
+		int itemCount = definition.getItemCount();
+
+		out.writeByte(page.isUpdated() ? PAGE_FLAG_IS_UPDATED : 0);
+
+		writeVarInt(out, itemCount);
+		for (int slot = 0; slot < itemCount; slot++)
+		{
+			writeVarInt(out, definition.getItemId(slot));
+			writeVarInt(out, stringTable.get(definition.getItemName(slot)));
+			writeVarInt(out, definition.getItemSequence(slot));
+			writeVarInt(out, page.getItemQuantity(slot));
+		}
+
+		for (int slot = 0; slot < itemCount; slot += 8)
+		{
+			int obtainedFlags = 0;
+			for (int bit = 0; bit < 8 && slot + bit < itemCount; bit++)
+			{
+				if (page.isItemObtained(slot + bit))
+				{
+					obtainedFlags |= 1 << bit;
+				}
+			}
+			out.writeByte(obtainedFlags);
+		}
+
+		List<CollectionLogKillCount> killCounts = page.getKillCounts();
+		writeVarInt(out, killCounts.size());
+		for (CollectionLogKillCount killCount : killCounts)
+		{
+			writeVarInt(out, stringTable.get(killCount.getName()));
+			writeVarInt(out, zigzagEncode(killCount.getAmount()));
+			writeVarInt(out, killCount.getSequence());
+		}
+	}
+
+	private Map<String, Integer> buildStringTable(CollectionLog collectionLog)
+	{
+		Map<String, Integer> stringTable = new LinkedHashMap<>();
+		for (Map.Entry<String, CollectionLogTab> tab : collectionLog.getTabs().entrySet())
+		{
+			stringTable.putIfAbsent(tab.getKey(), stringTable.size());
+			for (Map.Entry<String, CollectionLogPage> page : tab.getValue().getPages().entrySet())
+			{
+				stringTable.putIfAbsent(page.getKey(), stringTable.size());
+
+				CollectionLogPageDefinition definition = page.getValue().getDefinition();
+				for (int slot = 0; slot < definition.getItemCount(); slot++)
+				{
+					stringTable.putIfAbsent(definition.getItemName(slot), stringTable.size());
+				}
+
+				for (CollectionLogKillCount killCount : page.getValue().getKillCounts())
+				{
+					stringTable.putIfAbsent(killCount.getName(), stringTable.size());
+				}
+			}
+		}
+		return stringTable;
+	}
+
+	/**
+	 * Read a collection log from the uncompressed contents of a binary save file
+	 *
+	 * @param data File contents
+	 * @return Collection log
+	 * @throws IOException If the contents aren't a valid save file
+	 */
+	public CollectionLog read(byte[] data) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		for (int i = 0; i < MAGIC.length; i++)
+		{
+			if (magic[i] != MAGIC[i])
+			{
+				throw new IOException("Not a collection log save file");
+			}
+		}
+
+		int version = readVarInt(in);
+		if (version != VERSION && version != VERSION_WITHOUT_SEQUENCES)
+		{
+			throw new IOException("Unsupported save file version " + version);
+		}
+
+		String[] stringTable = new String[readCount(in, 1)];
+		for (int i = 0; i < stringTable.length; i++)
+		{
+			byte[] bytes = new byte[readCount(in, 1)];
+			in.readFully(bytes);
+			stringTable[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		int uniqueObtained = readVarInt(in);
+		int uniqueItems = readVarInt(in);
+
+		int tabCount = readCount(in, 2);
+		Map<String, CollectionLogTab> newTabs = new HashMap<>(tabCount * 2);
+		for (int i = 0; i < tabCount; i++)
+		{
+			String tabKey = readString(in, stringTable);
+			int pageCount = readCount(in, 4);
+
+			Map<String, CollectionLogPage> newPages = new HashMap<>(pageCount * 2);
+			for (int j = 0; j < pageCount; j++)
+			{
+				String pageKey = readString(in, stringTable);
+				newPages.put(pageKey, readPage(in, version, pageKey, stringTable));
+			}
+
+			newTabs.put(tabKey, new CollectionLogTab(tabKey, newPages));
+		}
+
+		return new CollectionLog("", uniqueObtained, uniqueItems, newTabs);
+	}
+
+	private CollectionLogPage readPage(DataInputStream in, int version, String pageKey, String[] stringTable) throws IOException
+	{
+		int flags = in.readUnsignedByte();
+
+		int itemCount = readCount(in, version == VERSION_WITHOUT_SEQUENCES ? 3 : 4);
+		int[] itemIds = new int[itemCount];
+		String[] itemNames = new String[itemCount];
+		int[] itemSequences = new int[itemCount];
+		int[] itemQuantities = new int[itemCount];
+		for (int slot = 0; slot < itemCount; slot++)
+		{
+			itemIds[slot] = readVarInt(in);
+			itemNames[slot] = readString(in, stringTable);
+			itemSequences[slot] = version == VERSION_WITHOUT_SEQUENCES ? slot : readVarInt(in);
+			itemQuantities[slot] = readVarInt(in);
+		}
+
+		byte[] obtainedFlags = new byte[(itemCount + 7) / 8];
+		in.readFully(obtainedFlags);
+		BitSet obtainedItems = BitSet.valueOf(obtainedFlags);
+
+		int killCountCount = readCount(in, 3);
+		List<CollectionLogKillCount> newKillCounts = new ArrayList<>(killCountCount);
+		for (int i = 0; i < killCountCount; i++)
+		{
+			String name = readString(in, stringTable);
+			int amount = zigzagDecode(readVarInt(in));
+			int sequence = readVarInt(in);
+			newKillCounts.add(new CollectionLogKillCount(name, amount, sequence));
+		}
+
+		CollectionLogPageDefinition pageDefinition;
+		if (collectionLogCatalog != null)
+		{
+			pageDefinition = collectionLogCatalog.getPageDefinition(pageKey, itemIds, itemNames, itemSequences);
+		}
+		else
+		{
+			pageDefinition = new CollectionLogPageDefinition(pageKey, itemIds, itemNames, itemSequences, Collections.emptyList());
+		}
+
+		return new CollectionLogPage(pageDefinition, itemQuantities, obtainedItems, newKillCounts, (flags & PAGE_FLAG_IS_UPDATED) != 0);
+	}
+
+	/**
+	 * Read a count of elements, checking that the bytes left could hold that many
+	 *
+	 * @param in Stream over the file contents, reporting the bytes left as available
+	 * @param minElementSize Fewest bytes each element can be written in
+	 * @return Count
+	 * @throws IOException If the count is negative or too large for the bytes left
+	 */
+	private static int readCount(DataInputStream in, int minElementSize) throws IOException
+	{
+		int count = readVarInt(in);
+		if (count < 0 || (long) count * minElementSize > in.available())
+		{
+			throw new IOException("Invalid count " + count);
+		}
+		return count;
+	}
+
+	private static String readString(DataInputStream in, String[] stringTable) throws IOException
+	{
+		int index = readVarInt(in);
+		if (index < 0 || index >= stringTable.length)
+		{
+			throw new IOException("Invalid string index " + index);
+		}
+		return stringTable[index];
+	}
+
+	/**
+	 * Write an int 7 bits at a time, low bits first, with the high bit of each byte marking a following byte
+	 */
+	static void writeVarInt(DataOutputStream out, int value) throws IOException
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarInt(DataInputStream in) throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	static int zigzagEncode(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static int zigzagDecode(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
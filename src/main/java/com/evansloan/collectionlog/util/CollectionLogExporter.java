@@ -0,0 +1,22 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a collection log in an export format. Exporters stream from the collection log
+ * to the writer without building an intermediate copy of the export
+ */
+public interface CollectionLogExporter
+{
+	/**
+	 * Write a collection log to a writer. The writer is not closed
+	 *
+	 * @param collectionLog Collection log to export
+	 * @param writer Writer to export to
+	 * @param compressed Whether the export is being gzip compressed, formats may skip whitespace meant for reading
+	 * @throws IOException If the export couldn't be written
+	 */
+	void export(CollectionLog collectionLog, Writer writer, boolean compressed) throws IOException;
+}
@@ -0,0 +1,83 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Streams collection log items without reflection. Page items are views over the page's
+ * item storage, so fields are written through their getters
+ */
+public class CollectionLogItemAdapter extends TypeAdapter<CollectionLogItem>
+{
+	private static final String ITEM_ID_KEY = "id";
+	private static final String ITEM_NAME_KEY = "name";
+	private static final String ITEM_QUANTITY_KEY = "quantity";
+	private static final String ITEM_OBTAINED_KEY = "obtained";
+	private static final String ITEM_SEQUENCE_KEY = "sequence";
+
+	@Override
+	public void write(JsonWriter out, CollectionLogItem item) throws IOException
+	{
+		if (item == null)
+		{
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		out.name(ITEM_ID_KEY).value(item.getId());
+		out.name(ITEM_NAME_KEY).value(item.getName());
+		out.name(ITEM_QUANTITY_KEY).value(item.getQuantity());
+		out.name(ITEM_OBTAINED_KEY).value(item.isObtained());
+		out.name(ITEM_SEQUENCE_KEY).value(item.getSequence());
+		out.endObject();
+	}
+
+	@Override
+	public CollectionLogItem read(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+
+		int id = 0;
+		String name = null;
+		int quantity = 0;
+		boolean obtained = false;
+		int sequence = 0;
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case ITEM_ID_KEY:
+					id = in.nextInt();
+					break;
+				case ITEM_NAME_KEY:
+					name = in.nextString();
+					break;
+				case ITEM_QUANTITY_KEY:
+					quantity = in.nextInt();
+					break;
+				case ITEM_OBTAINED_KEY:
+					obtained = in.nextBoolean();
+					break;
+				case ITEM_SEQUENCE_KEY:
+					sequence = in.nextInt();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new CollectionLogItem(id, name, quantity, obtained, sequence);
+	}
+}
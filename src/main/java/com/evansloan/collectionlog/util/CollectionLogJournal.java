@@ -0,0 +1,292 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of collection log changes made since the last full save. Each line is a JSON
+ * record holding the new state of what changed, so replaying a record more than once is harmless
+ */
+@Slf4j
+@Singleton
+public class CollectionLogJournal
+{
+	private static final String RECORD_TYPE_KEY = "type";
+	private static final String RECORD_PAGE_KEY = "page";
+	private static final String RECORD_TYPE_ITEM = "item";
+	private static final String RECORD_TYPE_PAGE = "page";
+	private static final String ITEM_ID_KEY = "id";
+	private static final String ITEM_QUANTITY_KEY = "quantity";
+	private static final String ITEM_OBTAINED_KEY = "obtained";
+	private static final String PAGE_IS_UPDATED_KEY = "isUpdated";
+	private static final String PAGE_ITEMS_KEY = "items";
+	private static final String PAGE_KILL_COUNTS_KEY = "killCounts";
+
+	private final CollectionLogItemAdapter itemAdapter = new CollectionLogItemAdapter();
+	private final CollectionLogKillCountAdapter killCountAdapter = new CollectionLogKillCountAdapter();
+
+	/**
+	 * A journal record, rendered when it's created so it can be appended from any thread
+	 */
+	public static class Record
+	{
+		private final String line;
+
+		private Record(String line)
+		{
+			this.line = line;
+		}
+	}
+
+	/**
+	 * Create a record of an item's quantity and obtained state in a page
+	 *
+	 * @param page Page containing the item
+	 * @param item Item that changed
+	 * @return Journal record
+	 */
+	public Record itemRecord(CollectionLogPage page, CollectionLogItem item)
+	{
+		StringWriter line = new StringWriter();
+		try (JsonWriter out = new JsonWriter(line))
+		{
+			out.beginObject();
+			out.name(RECORD_TYPE_KEY).value(RECORD_TYPE_ITEM);
+			out.name(RECORD_PAGE_KEY).value(page.getName());
+			out.name(ITEM_ID_KEY).value(item.getId());
+			out.name(ITEM_QUANTITY_KEY).value(item.getQuantity());
+			out.name(ITEM_OBTAINED_KEY).value(item.isObtained());
+			out.endObject();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return new Record(line.toString());
+	}
+
+	/**
+	 * Create a record of a page synced from the collection log interface, including its items and kill counts
+	 *
+	 * @param page Page that was synced
+	 * @return Journal record
+	 */
+	public Record pageRecord(CollectionLogPage page)
+	{
+		StringWriter line = new StringWriter();
+		try (JsonWriter out = new JsonWriter(line))
+		{
+			out.beginObject();
+			out.name(RECORD_TYPE_KEY).value(RECORD_TYPE_PAGE);
+			out.name(RECORD_PAGE_KEY).value(page.getName());
+			out.name(PAGE_IS_UPDATED_KEY).value(page.isUpdated());
+
+			out.name(PAGE_ITEMS_KEY).beginArray();
+			for (CollectionLogItem item : page.getItems())
+			{
+				itemAdapter.write(out, item);
+			}
+			out.endArray();
+
+			out.name(PAGE_KILL_COUNTS_KEY).beginArray();
+			for (CollectionLogKillCount killCount : page.getKillCounts())
+			{
+				killCountAdapter.write(out, killCount);
+			}
+			out.endArray();
+
+			out.endObject();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return new Record(line.toString());
+	}
+
+	/**
+	 * Append a record to a journal file
+	 *
+	 * @param filePath Path of the journal file
+	 * @param record Record to append
+	 * @return Whether the record was written
+	 */
+	public boolean append(String filePath, Record record)
+	{
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true)))
+		{
+			writer.write(record.line);
+			writer.newLine();
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to append to journal at path: " + filePath + "\n" + e.getMessage());
+		}
+
+		return false;
+	}
+
+	/**
+	 * Delete a journal file once its records are included in a full save
+	 *
+	 * @param filePath Path of the journal file
+	 */
+	public void clear(String filePath)
+	{
+		File file = new File(filePath);
+		if (file.exists() && !file.delete())
+		{
+			log.error("Unable to delete journal at path: " + filePath);
+		}
+	}
+
+	/**
+	 * Apply the records of a journal file to a collection log. Records that can't be read,
+	 * such as a partially written last record, are skipped
+	 *
+	 * @param filePath Path of the journal file
+	 * @param collectionLog Collection log to apply records to
+	 * @return Number of records applied
+	 */
+	public int replay(String filePath, CollectionLog collectionLog)
+	{
+		File file = new File(filePath);
+		if (!file.exists())
+		{
+			return 0;
+		}
+
+		int recordCount = 0;
+		try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.isEmpty())
+				{
+					continue;
+				}
+
+				try
+				{
+					applyRecord(new JsonReader(new StringReader(line)), collectionLog);
+					recordCount++;
+				}
+				catch (IOException | IllegalStateException | NumberFormatException e)
+				{
+					log.warn("Skipping unreadable journal record in: " + filePath);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to read journal at path: " + filePath + "\n" + e.getMessage());
+		}
+
+		return recordCount;
+	}
+
+	private void applyRecord(JsonReader in, CollectionLog collectionLog) throws IOException
+	{
+		String type = null;
+		String pageName = null;
+		int itemId = 0;
+		int quantity = 0;
+		boolean obtained = false;
+		boolean isUpdated = false;
+		List<CollectionLogItem> items = null;
+		List<CollectionLogKillCount> killCounts = null;
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case RECORD_TYPE_KEY:
+					type = in.nextString();
+					break;
+				case RECORD_PAGE_KEY:
+					pageName = in.nextString();
+					break;
+				case ITEM_ID_KEY:
+					itemId = in.nextInt();
+					break;
+				case ITEM_QUANTITY_KEY:
+					quantity = in.nextInt();
+					break;
+				case ITEM_OBTAINED_KEY:
+					obtained = in.nextBoolean();
+					break;
+				case PAGE_IS_UPDATED_KEY:
+					isUpdated = in.nextBoolean();
+					break;
+				case PAGE_ITEMS_KEY:
+					items = new ArrayList<>();
+					in.beginArray();
+					while (in.hasNext())
+					{
+						items.add(itemAdapter.read(in));
+					}
+					in.endArray();
+					break;
+				case PAGE_KILL_COUNTS_KEY:
+					killCounts = new ArrayList<>();
+					in.beginArray();
+					while (in.hasNext())
+					{
+						killCounts.add(killCountAdapter.read(in));
+					}
+					in.endArray();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		CollectionLogPage page = collectionLog.searchForPage(pageName);
+		if (page == null)
+		{
+			return;
+		}
+
+		if (RECORD_TYPE_ITEM.equals(type))
+		{
+			CollectionLogItem item = page.getItemById(itemId);
+			if (item != null)
+			{
+				item.setQuantity(quantity);
+				item.setObtained(obtained);
+			}
+		}
+		else if (RECORD_TYPE_PAGE.equals(type))
+		{
+			if (items != null)
+			{
+				collectionLog.setPageItems(page, items);
+			}
+			if (killCounts != null)
+			{
+				page.setKillCounts(killCounts);
+			}
+			page.setUpdated(isUpdated);
+		}
+	}
+}
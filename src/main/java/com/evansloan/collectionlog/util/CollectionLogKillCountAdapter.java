@@ -0,0 +1,70 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Streams collection log kill counts without reflection
+ */
+public class CollectionLogKillCountAdapter extends TypeAdapter<CollectionLogKillCount>
+{
+	private static final String KILL_COUNT_NAME_KEY = "name";
+	private static final String KILL_COUNT_AMOUNT_KEY = "amount";
+	private static final String KILL_COUNT_SEQUENCE_KEY = "sequence";
+
+	@Override
+	public void write(JsonWriter out, CollectionLogKillCount killCount) throws IOException
+	{
+		if (killCount == null)
+		{
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		out.name(KILL_COUNT_NAME_KEY).value(killCount.getName());
+		out.name(KILL_COUNT_AMOUNT_KEY).value(killCount.getAmount());
+		out.name(KILL_COUNT_SEQUENCE_KEY).value(killCount.getSequence());
+		out.endObject();
+	}
+
+	@Override
+	public CollectionLogKillCount read(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+
+		String name = null;
+		int amount = 0;
+		int sequence = 0;
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case KILL_COUNT_NAME_KEY:
+					name = in.nextString();
+					break;
+				case KILL_COUNT_AMOUNT_KEY:
+					amount = in.nextInt();
+					break;
+				case KILL_COUNT_SEQUENCE_KEY:
+					sequence = in.nextInt();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new CollectionLogKillCount(name, amount, sequence);
+	}
+}
@@ -0,0 +1,265 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogCatalog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogPageDefinition;
+import com.evansloan.collectionlog.CollectionLogTab;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a collection log to and from JSON in a single pass. Collection logs are written page by page
+ * without building a JSON tree, and read straight from the item fields without intermediate item objects
+ */
+public class CollectionLogTypeAdapter extends TypeAdapter<CollectionLog>
+{
+	private static final String COLLECTION_LOG_ITEMS_KEY = "items";
+	private static final String COLLECTION_LOG_KILL_COUNTS_KEY = "killCounts";
+	private static final String COLLECTION_LOG_TABS_KEY = "tabs";
+	private static final String COLLECTION_LOG_TOTAL_OBTAINED_KEY = "totalObtained";
+	private static final String COLLECTION_LOG_TOTAL_ITEMS_KEY = "totalItems";
+	private static final String COLLECTION_LOG_UNIQUE_OBTAINED_KEY = "uniqueObtained";
+	private static final String COLLECTION_LOG_UNIQUE_ITEMS_KEY = "uniqueItems";
+	private static final String COLLECTION_LOG_IS_UPDATED_KEY = "isUpdated";
+	private static final String ITEM_ID_KEY = "id";
+	private static final String ITEM_NAME_KEY = "name";
+	private static final String ITEM_QUANTITY_KEY = "quantity";
+	private static final String ITEM_OBTAINED_KEY = "obtained";
+	private static final String ITEM_SEQUENCE_KEY = "sequence";
+
+	private final CollectionLogItemAdapter itemAdapter = new CollectionLogItemAdapter();
+	private final CollectionLogKillCountAdapter killCountAdapter = new CollectionLogKillCountAdapter();
+
+	private final CollectionLogCatalog collectionLogCatalog;
+
+	public CollectionLogTypeAdapter()
+	{
+		this(null);
+	}
+
+	/**
+	 * @param collectionLogCatalog Catalog to share page definitions of read collection logs through, may be null
+	 */
+	public CollectionLogTypeAdapter(CollectionLogCatalog collectionLogCatalog)
+	{
+		this.collectionLogCatalog = collectionLogCatalog;
+	}
+
+	@Override
+	public void write(JsonWriter out, CollectionLog collectionLog) throws IOException
+	{
+		out.beginObject();
+		out.name(COLLECTION_LOG_TOTAL_OBTAINED_KEY).value(collectionLog.getTotalObtained());
+		out.name(COLLECTION_LOG_TOTAL_ITEMS_KEY).value(collectionLog.getTotalItems());
+		out.name(COLLECTION_LOG_UNIQUE_OBTAINED_KEY).value(collectionLog.getUniqueObtained());
+		out.name(COLLECTION_LOG_UNIQUE_ITEMS_KEY).value(collectionLog.getUniqueItems());
+
+		out.name(COLLECTION_LOG_TABS_KEY).beginObject();
+		for (Map.Entry<String, CollectionLogTab> tab : collectionLog.getTabs().entrySet())
+		{
+			out.name(tab.getKey()).beginObject();
+			for (Map.Entry<String, CollectionLogPage> page : tab.getValue().getPages().entrySet())
+			{
+				out.name(page.getKey());
+				writePage(out, page.getValue());
+			}
+			out.endObject();
+		}
+		out.endObject();
+
+		out.endObject();
+	}
+
+	private void writePage(JsonWriter out, CollectionLogPage page) throws IOException
+	{
+		out.beginObject();
+		out.name(COLLECTION_LOG_IS_UPDATED_KEY).value(page.isUpdated());
+
+		out.name(COLLECTION_LOG_ITEMS_KEY).beginArray();
+		for (CollectionLogItem item : page.getItems())
+		{
+			itemAdapter.write(out, item);
+		}
+		out.endArray();
+
+		out.name(COLLECTION_LOG_KILL_COUNTS_KEY).beginArray();
+		for (CollectionLogKillCount killCount : page.getKillCounts())
+		{
+			killCountAdapter.write(out, killCount);
+		}
+		out.endArray();
+
+		out.endObject();
+	}
+
+	@Override
+	public CollectionLog read(JsonReader in) throws IOException
+	{
+		int uniqueObtained = 0;
+		int uniqueItems = 0;
+		Map<String, CollectionLogTab> newTabs = new HashMap<>();
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case COLLECTION_LOG_UNIQUE_OBTAINED_KEY:
+					uniqueObtained = in.nextInt();
+					break;
+				case COLLECTION_LOG_UNIQUE_ITEMS_KEY:
+					uniqueItems = in.nextInt();
+					break;
+				case COLLECTION_LOG_TABS_KEY:
+					readTabs(in, newTabs);
+					break;
+				default:
+					// Totals are recalculated from the pages
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new CollectionLog("", uniqueObtained, uniqueItems, newTabs);
+	}
+
+	private void readTabs(JsonReader in, Map<String, CollectionLogTab> newTabs) throws IOException
+	{
+		in.beginObject();
+		while (in.hasNext())
+		{
+			String tabKey = in.nextName();
+			Map<String, CollectionLogPage> newPages = new HashMap<>();
+
+			in.beginObject();
+			while (in.hasNext())
+			{
+				String pageKey = in.nextName();
+				newPages.put(pageKey, readPage(in, pageKey));
+			}
+			in.endObject();
+
+			newTabs.put(tabKey, new CollectionLogTab(tabKey, newPages));
+		}
+		in.endObject();
+	}
+
+	private CollectionLogPage readPage(JsonReader in, String pageKey) throws IOException
+	{
+		int itemCount = 0;
+		int[] itemIds = new int[0];
+		String[] itemNames = new String[0];
+		int[] itemSequences = new int[0];
+		int[] itemQuantities = new int[0];
+		BitSet obtainedItems = new BitSet();
+		List<CollectionLogKillCount> newKillCounts = new ArrayList<>();
+		boolean isUpdated = false;
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case COLLECTION_LOG_IS_UPDATED_KEY:
+					isUpdated = in.nextBoolean();
+					break;
+				case COLLECTION_LOG_ITEMS_KEY:
+					itemIds = new int[16];
+					itemNames = new String[16];
+					itemSequences = new int[16];
+					itemQuantities = new int[16];
+
+					in.beginArray();
+					while (in.hasNext())
+					{
+						if (itemCount == itemIds.length)
+						{
+							itemIds = Arrays.copyOf(itemIds, itemCount * 2);
+							itemNames = Arrays.copyOf(itemNames, itemCount * 2);
+							itemSequences = Arrays.copyOf(itemSequences, itemCount * 2);
+							itemQuantities = Arrays.copyOf(itemQuantities, itemCount * 2);
+						}
+
+						// Items saved without a sequence keep their position in the page
+						itemSequences[itemCount] = itemCount;
+
+						in.beginObject();
+						while (in.hasNext())
+						{
+							switch (in.nextName())
+							{
+								case ITEM_ID_KEY:
+									itemIds[itemCount] = in.nextInt();
+									break;
+								case ITEM_NAME_KEY:
+									itemNames[itemCount] = in.nextString();
+									break;
+								case ITEM_QUANTITY_KEY:
+									itemQuantities[itemCount] = in.nextInt();
+									break;
+								case ITEM_OBTAINED_KEY:
+									obtainedItems.set(itemCount, in.nextBoolean());
+									break;
+								case ITEM_SEQUENCE_KEY:
+									itemSequences[itemCount] = in.nextInt();
+									break;
+								default:
+									in.skipValue();
+							}
+						}
+						in.endObject();
+						itemCount++;
+					}
+					in.endArray();
+					break;
+				case COLLECTION_LOG_KILL_COUNTS_KEY:
+					if (in.peek() == JsonToken.NULL)
+					{
+						in.nextNull();
+						break;
+					}
+
+					in.beginArray();
+					while (in.hasNext())
+					{
+						newKillCounts.add(killCountAdapter.read(in));
+					}
+					in.endArray();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		itemIds = Arrays.copyOf(itemIds, itemCount);
+		itemNames = Arrays.copyOf(itemNames, itemCount);
+		itemSequences = Arrays.copyOf(itemSequences, itemCount);
+		itemQuantities = Arrays.copyOf(itemQuantities, itemCount);
+
+		CollectionLogPageDefinition pageDefinition;
+		if (collectionLogCatalog != null)
+		{
+			pageDefinition = collectionLogCatalog.getPageDefinition(pageKey, itemIds, itemNames, itemSequences);
+		}
+		else
+		{
+			pageDefinition = new CollectionLogPageDefinition(pageKey, itemIds, itemNames, itemSequences, Collections.emptyList());
+		}
+
+		return new CollectionLogPage(pageDefinition, itemQuantities, obtainedItems, newKillCounts, isUpdated);
+	}
+}
@@ -0,0 +1,70 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogTab;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Exports a collection log as CSV with one row per item in each page
+ */
+public class CsvCollectionLogExporter implements CollectionLogExporter
+{
+	private static final String HEADER = "tab,page,item_id,item_name,quantity,obtained";
+	private static final String LINE_SEPARATOR = "\r\n";
+
+	@Override
+	public void export(CollectionLog collectionLog, Writer writer, boolean compressed) throws IOException
+	{
+		writer.write(HEADER);
+		writer.write(LINE_SEPARATOR);
+
+		for (Map.Entry<String, CollectionLogTab> tab : collectionLog.getTabs().entrySet())
+		{
+			String tabField = escape(tab.getKey());
+			for (Map.Entry<String, CollectionLogPage> page : tab.getValue().getPages().entrySet())
+			{
+				String pageField = escape(page.getKey());
+				for (CollectionLogItem item : page.getValue().getItems())
+				{
+					writer.write(tabField);
+					writer.write(',');
+					writer.write(pageField);
+					writer.write(',');
+					writer.write(Integer.toString(item.getId()));
+					writer.write(',');
+					writer.write(escape(item.getName()));
+					writer.write(',');
+					writer.write(Integer.toString(item.getQuantity()));
+					writer.write(',');
+					writer.write(Boolean.toString(item.isObtained()));
+					writer.write(LINE_SEPARATOR);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Quote a field if it contains a separator, quote or line break, doubling any quotes
+	 */
+	static String escape(String field)
+	{
+		if (field == null)
+		{
+			return "";
+		}
+
+		for (int i = 0; i < field.length(); i++)
+		{
+			char c = field.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r')
+			{
+				return '"' + field.replace("\"", "\"\"") + '"';
+			}
+		}
+		return field;
+	}
+}
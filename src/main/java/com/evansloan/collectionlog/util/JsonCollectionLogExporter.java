@@ -0,0 +1,27 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Exports a collection log as one JSON document, in the same format as collectionlog.net uploads.
+ * Indented unless compressed
+ */
+public class JsonCollectionLogExporter implements CollectionLogExporter
+{
+	private final CollectionLogTypeAdapter typeAdapter = new CollectionLogTypeAdapter();
+
+	@Override
+	public void export(CollectionLog collectionLog, Writer writer, boolean compressed) throws IOException
+	{
+		JsonWriter out = new JsonWriter(writer);
+		if (!compressed)
+		{
+			out.setIndent("  ");
+		}
+		typeAdapter.write(out, collectionLog);
+		out.flush();
+	}
+}
@@ -1,16 +1,37 @@
 package com.evansloan.collectionlog.util;
 
+import com.evansloan.collectionlog.CollectionLog;
 import com.google.gson.Gson;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
 
@@ -21,24 +42,27 @@ public class JsonUtils
 	@Inject
 	Gson gson;
 
-	private JsonObject parseFile(String filePath) throws IOException, JsonParseException
-	{
-		FileReader reader = new FileReader(filePath);
-		JsonObject fileContents = new JsonParser().parse(reader).getAsJsonObject();
-		reader.close();
+	/*
+	 * Pretty printing Gson built from the injected instance, cached instead of rebuilt per call
+	 */
+	private Gson prettyGson;
 
-		return fileContents;
+	private synchronized Gson getPrettyGson()
+	{
+		if (prettyGson == null)
+		{
+			prettyGson = gson.newBuilder()
+				.setPrettyPrinting()
+				.create();
+		}
+		return prettyGson;
 	}
 
-	public <T, D extends JsonDeserializer<T>> T readJsonFile(String filePath, Class<T> type, D deserializer)
+	public <T> T readJsonFile(String filePath, Class<T> type)
 	{
-		try
+		try (Reader reader = openFileReader(filePath))
 		{
-			JsonObject fileContents = parseFile(filePath);
-			return gson.newBuilder()
-				.registerTypeAdapter(type, deserializer)
-				.create()
-				.fromJson(fileContents, type);
+			return gson.fromJson(reader, type);
 		}
 		catch (IOException | JsonParseException e)
 		{
@@ -48,63 +72,233 @@ public class JsonUtils
 		return null;
 	}
 
+	/**
+	 * Stream data from a file through a type adapter without parsing it to a JSON tree first
+	 *
+	 * @param filePath Path of the file to read
+	 * @param typeAdapter Adapter reading the data
+	 * @return Data read from the file, null if the file couldn't be read
+	 */
+	public <T> T readJsonFile(String filePath, TypeAdapter<T> typeAdapter)
+	{
+		try (JsonReader reader = new JsonReader(openFileReader(filePath)))
+		{
+			return typeAdapter.read(reader);
+		}
+		catch (IOException | IllegalStateException | NumberFormatException e)
+		{
+			log.error("Unable to read JSON file at path: " + filePath + "\n" + e.getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stream a single property of a JSON object through a type adapter, skipping all other properties
+	 *
+	 * @param reader Reader over a JSON object
+	 * @param propertyName Name of the property to read
+	 * @param typeAdapter Adapter reading the property
+	 * @return Property value, null if the object doesn't contain the property
+	 * @throws IOException If the JSON couldn't be read
+	 */
+	public <T> T readJsonProperty(Reader reader, String propertyName, TypeAdapter<T> typeAdapter) throws IOException
+	{
+		try (JsonReader jsonReader = new JsonReader(reader))
+		{
+			jsonReader.beginObject();
+			while (jsonReader.hasNext())
+			{
+				if (!jsonReader.nextName().equals(propertyName))
+				{
+					jsonReader.skipValue();
+					continue;
+				}
+
+				if (jsonReader.peek() == JsonToken.NULL)
+				{
+					return null;
+				}
+				return typeAdapter.read(jsonReader);
+			}
+		}
+		catch (IllegalStateException | NumberFormatException e)
+		{
+			throw new IOException(e);
+		}
+
+		return null;
+	}
+
 	private boolean writeFile(String filePath, String contents)
 	{
+		File tempFile = getTempFile(filePath);
 		try
 		{
-			BufferedWriter writer = new BufferedWriter(new FileWriter(filePath));
+			BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile));
 			writer.write(contents);
 			writer.close();
+			replaceFile(tempFile, filePath);
 			return true;
 		}
 		catch (IOException e)
 		{
 			log.error("Unable to write JSON file at path: " + filePath + "\n" + e.getMessage());
+			tempFile.delete();
 		}
 
 		return false;
 	}
 
+	private static Reader openFileReader(String filePath) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(openFileInputStream(filePath)));
+	}
+
+	/**
+	 * Open a file for reading, decompressing it if it starts with the gzip magic bytes
+	 *
+	 * @param filePath Path of the file to read
+	 * @return Buffered stream of the file's uncompressed contents
+	 * @throws IOException If the file couldn't be opened
+	 */
+	static InputStream openFileInputStream(String filePath) throws IOException
+	{
+		InputStream in = new BufferedInputStream(new FileInputStream(filePath));
+		try
+		{
+			in.mark(2);
+			int magic = in.read() | (in.read() << 8);
+			in.reset();
+
+			if (magic == GZIPInputStream.GZIP_MAGIC)
+			{
+				return new BufferedInputStream(new GZIPInputStream(in));
+			}
+			return in;
+		}
+		catch (IOException e)
+		{
+			// A truncated or corrupt gzip header fails before the caller has a stream to close
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Open a file for writing
+	 *
+	 * @param file File to write
+	 * @param compressed Whether to gzip the file
+	 * @return Buffered stream writing to the file
+	 * @throws IOException If the file couldn't be opened
+	 */
+	static OutputStream openFileOutputStream(File file, boolean compressed) throws IOException
+	{
+		OutputStream out = new FileOutputStream(file);
+		if (compressed)
+		{
+			out = new GZIPOutputStream(out);
+		}
+		return new BufferedOutputStream(out);
+	}
+
+	/*
+	 * Files are written to a temp file next to the target then renamed over it, so a crash
+	 * mid-write never leaves a truncated file behind
+	 */
+	static File getTempFile(String filePath)
+	{
+		return new File(filePath + ".tmp");
+	}
+
+	static void replaceFile(File tempFile, String filePath) throws IOException
+	{
+		Path target = Paths.get(filePath);
+		try
+		{
+			Files.move(tempFile.toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(tempFile.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	public <T> boolean writeJsonFile(String filePath, T data)
 	{
-		String contents = gson.newBuilder()
-			.setPrettyPrinting()
-			.create()
-			.toJson(data, data.getClass());
+		String contents = getPrettyGson().toJson(data, data.getClass());
 
 		return writeFile(filePath, contents);
 	}
 
-	public <T, S extends JsonSerializer<T>> boolean writeJsonFile(String filePath, T data, S serializer)
+	/**
+	 * Stream data to a file through a type adapter without rendering it to a string first
+	 *
+	 * @param filePath Path of the file to write
+	 * @param data Data to write
+	 * @param typeAdapter Adapter writing the data
+	 * @return Whether the file was written
+	 */
+	public <T> boolean writeJsonFile(String filePath, T data, TypeAdapter<T> typeAdapter)
 	{
-		String contents = gson.newBuilder()
-			.registerTypeAdapter(data.getClass(), serializer)
-			.setPrettyPrinting()
-			.create()
-			.toJson(data);
+		File tempFile = getTempFile(filePath);
+		try
+		{
+			try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(openFileOutputStream(tempFile, false)))))
+			{
+				writer.setIndent("  ");
+				typeAdapter.write(writer, data);
+			}
+			replaceFile(tempFile, filePath);
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to write JSON file at path: " + filePath + "\n" + e.getMessage());
+			tempFile.delete();
+		}
 
-		return writeFile(filePath, contents);
+		return false;
 	}
 
-	public <T> JsonObject toJsonObject(T data)
+	/**
+	 * Stream a collection log export to a file, optionally gzip compressed
+	 *
+	 * @param filePath Path of the file to write
+	 * @param collectionLog Collection log to export
+	 * @param exporter Exporter writing the export format
+	 * @param compressed Whether to gzip the file
+	 * @return Whether the file was written
+	 */
+	public boolean writeExportFile(String filePath, CollectionLog collectionLog, CollectionLogExporter exporter, boolean compressed)
 	{
-		return gson.toJsonTree(data).getAsJsonObject();
+		File tempFile = getTempFile(filePath);
+		try
+		{
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(openFileOutputStream(tempFile, compressed), StandardCharsets.UTF_8)))
+			{
+				exporter.export(collectionLog, writer, compressed);
+			}
+			replaceFile(tempFile, filePath);
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.error("Unable to write export file at path: " + filePath + "\n" + e.getMessage());
+			tempFile.delete();
+		}
+
+		return false;
 	}
 
-	public <T, S extends JsonSerializer<T>> JsonObject toJsonObject(T data, S serializer)
+	public <T> JsonObject toJsonObject(T data)
 	{
-		return gson.newBuilder()
-			.registerTypeAdapter(data.getClass(), serializer)
-			.create()
-			.toJsonTree(data)
-			.getAsJsonObject();
+		return gson.toJsonTree(data).getAsJsonObject();
 	}
 
-	public <T, D extends JsonDeserializer<T>> T fromJsonObject(JsonObject data, Class<T> type, D deserializer)
+	public <T> JsonObject toJsonObject(T data, TypeAdapter<T> typeAdapter)
 	{
-		return gson.newBuilder()
-			.registerTypeAdapter(type, deserializer)
-			.create()
-			.fromJson(data, type);
+		return typeAdapter.toJsonTree(data).getAsJsonObject();
 	}
 }
@@ -0,0 +1,61 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogTab;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Exports a collection log as newline delimited JSON, one page per line
+ */
+public class NdjsonCollectionLogExporter implements CollectionLogExporter
+{
+	private static final String TAB_KEY = "tab";
+	private static final String PAGE_KEY = "page";
+	private static final String PAGE_IS_UPDATED_KEY = "isUpdated";
+	private static final String PAGE_ITEMS_KEY = "items";
+	private static final String PAGE_KILL_COUNTS_KEY = "killCounts";
+
+	private final CollectionLogItemAdapter itemAdapter = new CollectionLogItemAdapter();
+	private final CollectionLogKillCountAdapter killCountAdapter = new CollectionLogKillCountAdapter();
+
+	@Override
+	public void export(CollectionLog collectionLog, Writer writer, boolean compressed) throws IOException
+	{
+		for (Map.Entry<String, CollectionLogTab> tab : collectionLog.getTabs().entrySet())
+		{
+			for (Map.Entry<String, CollectionLogPage> page : tab.getValue().getPages().entrySet())
+			{
+				// A JsonWriter writes a single value, use one per line without closing the underlying writer
+				JsonWriter out = new JsonWriter(writer);
+				out.beginObject();
+				out.name(TAB_KEY).value(tab.getKey());
+				out.name(PAGE_KEY).value(page.getKey());
+				out.name(PAGE_IS_UPDATED_KEY).value(page.getValue().isUpdated());
+
+				out.name(PAGE_ITEMS_KEY).beginArray();
+				for (CollectionLogItem item : page.getValue().getItems())
+				{
+					itemAdapter.write(out, item);
+				}
+				out.endArray();
+
+				out.name(PAGE_KILL_COUNTS_KEY).beginArray();
+				for (CollectionLogKillCount killCount : page.getValue().getKillCounts())
+				{
+					killCountAdapter.write(out, killCount);
+				}
+				out.endArray();
+
+				out.endObject();
+				out.flush();
+				writer.write('\n');
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.AccountType;
+import com.evansloan.collectionlog.UserSettings;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Streams user settings without reflection. Holds no state, so one instance can be shared
+ */
+public class UserSettingsAdapter extends TypeAdapter<UserSettings>
+{
+	private static final String USER_SETTINGS_DISPLAY_RANK = "displayRank";
+	private static final String USER_SETTINGS_SHOW_QUANTITY = "showQuantity";
+
+	@Override
+	public void write(JsonWriter out, UserSettings userSettings) throws IOException
+	{
+		if (userSettings == null)
+		{
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		out.name(USER_SETTINGS_DISPLAY_RANK).value(userSettings.getDisplayRank().name());
+		out.name(USER_SETTINGS_SHOW_QUANTITY).value(userSettings.isShowQuantity());
+		out.endObject();
+	}
+
+	@Override
+	public UserSettings read(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+
+		UserSettings userSettings = new UserSettings();
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case USER_SETTINGS_DISPLAY_RANK:
+					String displayRank = in.nextString();
+					try
+					{
+						userSettings.setDisplayRank(AccountType.valueOf(displayRank));
+					}
+					catch (IllegalArgumentException e)
+					{
+						throw new IOException("Unknown display rank: " + displayRank);
+					}
+					break;
+				case USER_SETTINGS_SHOW_QUANTITY:
+					userSettings.setShowQuantity(in.nextBoolean());
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return userSettings;
+	}
+}
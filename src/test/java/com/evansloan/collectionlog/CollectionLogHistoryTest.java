@@ -0,0 +1,155 @@
+package com.evansloan.collectionlog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CollectionLogHistoryTest
+{
+	private static final String USERNAME = "user";
+	private static final String PAGE_NAME = "Vorkath";
+	private static final String KILL_COUNT_NAME = "Vorkath kills";
+	private static final int ITEM_ID = 21907;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private CollectionLogHistory collectionLogHistory;
+
+	@Before
+	public void before()
+	{
+		collectionLogHistory = createHistory();
+	}
+
+	@Test
+	public void testGetProgressAt()
+	{
+		collectionLogHistory.recordPage(USERNAME, 10_000, createPage(0, false, 5));
+		collectionLogHistory.recordPage(USERNAME, 20_000, createPage(1, true, 6));
+		collectionLogHistory.recordPage(USERNAME, 30_000, createPage(2, true, 9));
+
+		CollectionLogHistory.Progress before = collectionLogHistory.getProgressAt(USERNAME, 5_000);
+		assertEquals(0, before.getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+		assertFalse(before.isItemObtained(PAGE_NAME, ITEM_ID));
+
+		CollectionLogHistory.Progress middle = collectionLogHistory.getProgressAt(USERNAME, 20_000);
+		assertEquals(1, middle.getItemQuantity(PAGE_NAME, ITEM_ID));
+		assertTrue(middle.isItemObtained(PAGE_NAME, ITEM_ID));
+		assertEquals(6, middle.getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+		assertEquals(1, middle.getUniqueObtained());
+
+		CollectionLogHistory.Progress latest = collectionLogHistory.getProgressAt(USERNAME, Long.MAX_VALUE / 2);
+		assertEquals(2, latest.getItemQuantity(PAGE_NAME, ITEM_ID));
+		assertEquals(9, latest.getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+	}
+
+	@Test
+	public void testGetProgressAtFromCheckpoints()
+	{
+		for (int i = 1; i <= 5000; i++)
+		{
+			collectionLogHistory.recordPage(USERNAME, i * 1000L, createPage(0, false, i));
+		}
+
+		// Later lookups build checkpoints that earlier and repeated lookups start from
+		int[] killCounts = {5000, 1024, 1025, 4097, 3000, 1, 2048, 5000};
+		for (int killCount : killCounts)
+		{
+			CollectionLogHistory.Progress progress = collectionLogHistory.getProgressAt(USERNAME, killCount * 1000L);
+			assertEquals(killCount, progress.getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+		}
+
+		// A checkpoint isn't changed by progress computed from it
+		collectionLogHistory.getProgressAt(USERNAME, 2500 * 1000L);
+		assertEquals(2048, collectionLogHistory.getProgressAt(USERNAME, 2048 * 1000L).getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+	}
+
+	@Test
+	public void testGetPageTimeline()
+	{
+		collectionLogHistory.recordPage(USERNAME, 10_000, createPage(0, false, 5));
+		collectionLogHistory.recordPage(USERNAME, 20_000, createPage(1, true, 5));
+		collectionLogHistory.recordPage(USERNAME, 30_000, createPage(1, true, 7));
+
+		List<CollectionLogHistory.Change> timeline = collectionLogHistory.getPageTimeline(USERNAME, PAGE_NAME, 15_000, 30_000);
+		assertEquals(2, timeline.size());
+
+		CollectionLogHistory.Change itemChange = timeline.get(0);
+		assertEquals(20_000, itemChange.getTimestamp());
+		assertEquals(ITEM_ID, itemChange.getItemId());
+		assertNull(itemChange.getKillCountName());
+		assertEquals(1, itemChange.getValue());
+		assertTrue(itemChange.isObtained());
+
+		CollectionLogHistory.Change killCountChange = timeline.get(1);
+		assertEquals(30_000, killCountChange.getTimestamp());
+		assertEquals(-1, killCountChange.getItemId());
+		assertEquals(KILL_COUNT_NAME, killCountChange.getKillCountName());
+		assertEquals(7, killCountChange.getValue());
+
+		assertTrue(collectionLogHistory.getPageTimeline(USERNAME, "Zulrah", 0, 30_000).isEmpty());
+	}
+
+	@Test
+	public void testReadHistoryFile()
+	{
+		collectionLogHistory.recordPage(USERNAME, 10_000, createPage(0, false, 5));
+		collectionLogHistory.recordPage(USERNAME, 20_000, createPage(3, true, 8));
+
+		CollectionLogHistory.Progress progress = createHistory().getProgressAt(USERNAME, 20_000);
+		assertEquals(3, progress.getItemQuantity(PAGE_NAME, ITEM_ID));
+		assertTrue(progress.isItemObtained(PAGE_NAME, ITEM_ID));
+		assertEquals(8, progress.getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+	}
+
+	@Test
+	public void testDeleteHistory()
+	{
+		collectionLogHistory.recordPage(USERNAME, 10_000, createPage(1, true, 5));
+		collectionLogHistory.deleteHistory(USERNAME);
+		assertFalse(getHistoryFile(USERNAME).exists());
+
+		collectionLogHistory.recordPage(USERNAME, 20_000, createPage(0, false, 2));
+		CollectionLogHistory.Progress progress = createHistory().getProgressAt(USERNAME, 20_000);
+		assertFalse(progress.isItemObtained(PAGE_NAME, ITEM_ID));
+		assertEquals(2, progress.getKillCount(PAGE_NAME, KILL_COUNT_NAME));
+	}
+
+	private CollectionLogHistory createHistory()
+	{
+		CollectionLogHistory history = new CollectionLogHistory();
+		history.collectionLogManager = new CollectionLogManager()
+		{
+			@Override
+			public String getHistoryFilePath(String username)
+			{
+				return getHistoryFile(username).getPath();
+			}
+		};
+		return history;
+	}
+
+	private File getHistoryFile(String username)
+	{
+		return new File(temporaryFolder.getRoot(), "history-" + username + ".dat");
+	}
+
+	private static CollectionLogPage createPage(int quantity, boolean obtained, int killCount)
+	{
+		List<CollectionLogItem> items = new ArrayList<>();
+		items.add(new CollectionLogItem(ITEM_ID, "Vorkath's head", quantity, obtained, 0));
+
+		List<CollectionLogKillCount> killCounts = Collections.singletonList(new CollectionLogKillCount(KILL_COUNT_NAME, killCount, 0));
+		return new CollectionLogPage(PAGE_NAME, items, killCounts, false);
+	}
+}
@@ -0,0 +1,35 @@
+package com.evansloan.collectionlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class CollectionLogKillCountTest
+{
+	@Test
+	public void testParseAmount()
+	{
+		assertEquals(1234, CollectionLogKillCount.parseAmount("Vorkath kills: <col=ff0000>1,234</col>"));
+		assertEquals(0, CollectionLogKillCount.parseAmount("Vorkath kills: 0"));
+		assertEquals(-1, CollectionLogKillCount.parseAmount("Vorkath kills: -1"));
+	}
+
+	@Test
+	public void testParseInvalidAmount()
+	{
+		assertEquals(CollectionLogKillCount.INVALID_AMOUNT, CollectionLogKillCount.parseAmount("Vorkath kills"));
+		assertEquals(CollectionLogKillCount.INVALID_AMOUNT, CollectionLogKillCount.parseAmount("Vorkath kills: <col=ff0000></col>"));
+		assertEquals(CollectionLogKillCount.INVALID_AMOUNT, CollectionLogKillCount.parseAmount("Vorkath kills: 12a4"));
+		assertEquals(CollectionLogKillCount.INVALID_AMOUNT, CollectionLogKillCount.parseAmount("Vorkath kills: 99,999,999,999"));
+		assertNull(CollectionLogKillCount.fromString("Vorkath kills: ???", 0));
+	}
+
+	@Test
+	public void testFromString()
+	{
+		CollectionLogKillCount killCount = CollectionLogKillCount.fromString("Vorkath kills: <col=ff0000>1,234</col>", 2);
+		assertEquals("Vorkath kills", killCount.getName());
+		assertEquals(1234, killCount.getAmount());
+		assertEquals(2, killCount.getSequence());
+	}
+}
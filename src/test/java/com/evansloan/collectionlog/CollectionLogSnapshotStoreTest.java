@@ -0,0 +1,207 @@
+package com.evansloan.collectionlog;
+
+import com.evansloan.collectionlog.util.CollectionLogTypeAdapter;
+import com.evansloan.collectionlog.util.JsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CollectionLogSnapshotStoreTest
+{
+	private static final String USERNAME = "user";
+	private static final int PAGE_COUNT = 4;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private CollectionLogSnapshotStore snapshotStore;
+	private CollectionLog collectionLog;
+
+	@Before
+	public void before() throws ReflectiveOperationException
+	{
+		snapshotStore = new CollectionLogSnapshotStore()
+		{
+			@Override
+			File getSnapshotDir(String username)
+			{
+				return new File(temporaryFolder.getRoot(), username);
+			}
+		};
+		// JsonUtils is field injected, its Gson is set the way Guice would
+		JsonUtils jsonUtils = new JsonUtils();
+		Field gsonField = JsonUtils.class.getDeclaredField("gson");
+		gsonField.setAccessible(true);
+		gsonField.set(jsonUtils, new Gson());
+		snapshotStore.jsonUtils = jsonUtils;
+
+		collectionLog = createCollectionLog();
+	}
+
+	@Test
+	public void testUnchangedPagesStoredOnce()
+	{
+		assertNotNull(snapshotStore.saveSnapshot(collectionLog.snapshot()));
+		assertEquals(PAGE_COUNT, countObjects("pages"));
+		assertEquals(2, countObjects("tabs"));
+
+		// A snapshot with the same contents adds only a manifest
+		assertNotNull(snapshotStore.saveSnapshot(collectionLog.snapshot()));
+		assertEquals(PAGE_COUNT, countObjects("pages"));
+		assertEquals(2, countObjects("tabs"));
+
+		// Changing one page adds that page and its tab
+		collectionLog.searchForPage("Page 0-1").getItemById(1).setQuantity(9);
+		assertNotNull(snapshotStore.saveSnapshot(collectionLog.snapshot()));
+		assertEquals(PAGE_COUNT + 1, countObjects("pages"));
+		assertEquals(3, countObjects("tabs"));
+
+		// Identical contents in a different collection log instance hash to the same objects
+		assertNotNull(snapshotStore.saveSnapshot(createCollectionLog().snapshot()));
+		assertEquals(PAGE_COUNT + 1, countObjects("pages"));
+		assertEquals(3, countObjects("tabs"));
+		assertEquals(4, snapshotStore.getSnapshotIds(USERNAME).size());
+	}
+
+	@Test
+	public void testSnapshotIdOrder() throws IOException
+	{
+		// Snapshots saved within a second get suffixed IDs that still sort in save order
+		List<String> savedSnapshotIds = new ArrayList<>();
+		for (int i = 0; i < 12; i++)
+		{
+			collectionLog.searchForPage("Page 0-0").getItemById(0).setQuantity(i);
+			savedSnapshotIds.add(snapshotStore.saveSnapshot(collectionLog.snapshot()));
+		}
+		assertEquals(savedSnapshotIds.size(), new HashSet<>(savedSnapshotIds).size());
+		assertEquals(savedSnapshotIds, snapshotStore.getSnapshotIds(USERNAME));
+
+		// With the extension a suffixed ID would sort before the ID it collided with
+		File manifestsDir = getObjectsDir("manifests");
+		File manifestFile = new File(manifestsDir, savedSnapshotIds.get(0) + ".json");
+		List<String> snapshotIds = Arrays.asList("20200101T100000", "20200101T100000-001", "20200101T100000-002", "20200101T100001");
+		for (String snapshotId : snapshotIds)
+		{
+			Files.copy(manifestFile.toPath(), new File(manifestsDir, snapshotId + ".json").toPath());
+		}
+		assertEquals(snapshotIds, snapshotStore.getSnapshotIds(USERNAME).subList(0, snapshotIds.size()));
+	}
+
+	@Test
+	public void testRetention() throws IOException
+	{
+		List<String> savedSnapshotIds = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+		{
+			collectionLog.searchForPage("Page 1-0").getItemById(1000).setQuantity(i + 1);
+			savedSnapshotIds.add(snapshotStore.saveSnapshot(collectionLog.snapshot()));
+		}
+
+		// Move the first three snapshots back in time: one outside the daily period and two on the same day
+		File manifestsDir = getObjectsDir("manifests");
+		String oldSnapshotId = renameSnapshot(manifestsDir, savedSnapshotIds.get(0), -10, 8);
+		String earlySnapshotId = renameSnapshot(manifestsDir, savedSnapshotIds.get(1), -2, 8);
+		String lateSnapshotId = renameSnapshot(manifestsDir, savedSnapshotIds.get(2), -2, 20);
+		String latestSnapshotId = savedSnapshotIds.get(3);
+		assertEquals(Arrays.asList(oldSnapshotId, earlySnapshotId, lateSnapshotId, latestSnapshotId), snapshotStore.getSnapshotIds(USERNAME));
+		assertEquals(PAGE_COUNT + 3, countObjects("pages"));
+
+		snapshotStore.applyRetention(USERNAME, 1, 7);
+
+		// The latest snapshot is kept, as well as the last snapshot of each day in the daily period
+		assertEquals(Arrays.asList(lateSnapshotId, latestSnapshotId), snapshotStore.getSnapshotIds(USERNAME));
+		assertEquals(PAGE_COUNT + 1, countObjects("pages"));
+		assertEquals(3, countObjects("tabs"));
+		assertNull(snapshotStore.materialize(USERNAME, oldSnapshotId));
+		assertEquals(3, snapshotStore.materialize(USERNAME, lateSnapshotId).searchForPage("Page 1-0").getItemById(1000).getQuantity());
+		assertEquals(4, snapshotStore.materialize(USERNAME, latestSnapshotId).searchForPage("Page 1-0").getItemById(1000).getQuantity());
+	}
+
+	@Test
+	public void testMaterialize()
+	{
+		CollectionLog snapshot = collectionLog.snapshot();
+		String snapshotId = snapshotStore.saveSnapshot(snapshot);
+
+		collectionLog.searchForPage("Page 0-0").getItemById(1).setObtained(true);
+		snapshotStore.saveSnapshot(collectionLog.snapshot());
+
+		CollectionLog materializedCollectionLog = snapshotStore.materialize(USERNAME, snapshotId);
+		assertEquals(toJson(snapshot), toJson(materializedCollectionLog));
+		assertEquals(snapshot.getTotalObtained(), materializedCollectionLog.getTotalObtained());
+		assertEquals(snapshot.getTotalItems(), materializedCollectionLog.getTotalItems());
+		assertNull(snapshotStore.materialize(USERNAME, "20200101T000000"));
+	}
+
+	private File getObjectsDir(String name)
+	{
+		return new File(new File(temporaryFolder.getRoot(), USERNAME), name);
+	}
+
+	private int countObjects(String name)
+	{
+		return getObjectsDir(name).list((dir, fileName) -> fileName.endsWith(".json")).length;
+	}
+
+	private static String renameSnapshot(File manifestsDir, String snapshotId, int days, int hour) throws IOException
+	{
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.DAY_OF_MONTH, days);
+		calendar.set(Calendar.HOUR_OF_DAY, hour);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		String newSnapshotId = new SimpleDateFormat("yyyyMMdd'T'HHmmss").format(calendar.getTime());
+
+		Files.move(new File(manifestsDir, snapshotId + ".json").toPath(), new File(manifestsDir, newSnapshotId + ".json").toPath());
+		return newSnapshotId;
+	}
+
+	private static JsonElement toJson(CollectionLog collectionLog)
+	{
+		return new CollectionLogTypeAdapter().toJsonTree(collectionLog);
+	}
+
+	private static CollectionLog createCollectionLog()
+	{
+		Map<String, CollectionLogTab> tabs = new HashMap<>();
+		for (int tab = 0; tab < 2; tab++)
+		{
+			Map<String, CollectionLogPage> pages = new HashMap<>();
+			for (int page = 0; page < PAGE_COUNT / 2; page++)
+			{
+				String pageName = "Page " + tab + "-" + page;
+
+				List<CollectionLogItem> items = new ArrayList<>();
+				for (int item = 0; item < 3; item++)
+				{
+					items.add(new CollectionLogItem(1000 * tab + item, "Item " + item, 0, false, item));
+				}
+
+				List<CollectionLogKillCount> killCounts = new ArrayList<>();
+				killCounts.add(new CollectionLogKillCount(pageName + " kills", page, 0));
+
+				pages.put(pageName, new CollectionLogPage(pageName, items, killCounts, false));
+			}
+			tabs.put("Tab " + tab, new CollectionLogTab("Tab " + tab, pages));
+		}
+		return new CollectionLog(USERNAME, 0, PAGE_COUNT * 3, tabs);
+	}
+}
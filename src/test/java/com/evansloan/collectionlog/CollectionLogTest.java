@@ -0,0 +1,241 @@
+package com.evansloan.collectionlog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.runelite.client.game.ItemStack;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CollectionLogTest
+{
+	private static final String USERNAME = "user";
+	private static final int PET_ID = 100;
+
+	private Map<String, List<CollectionLogPageDefinition>> catalogTabs;
+	private CollectionLog collectionLog;
+
+	@Before
+	public void before()
+	{
+		catalogTabs = new LinkedHashMap<>();
+		catalogTabs.put("Bosses", Arrays.asList(
+			createDefinition("Vorkath", 1, 2, PET_ID),
+			createDefinition("Zulrah", 3, 4, 5, PET_ID)
+		));
+		catalogTabs.put("Other", Collections.singletonList(createDefinition("Miscellaneous", 6, 7)));
+
+		collectionLog = CollectionLogManager.buildCollectionLog(catalogTabs, createSaveFile(), USERNAME, 3, 8);
+	}
+
+	@Test
+	public void testMergeSaveFile()
+	{
+		assertConsistent(collectionLog);
+		assertEquals(3, collectionLog.getTotalObtained());
+		assertEquals(9, collectionLog.getTotalItems());
+
+		CollectionLogPage vorkath = collectionLog.searchForPage("vorkath");
+		assertEquals(2, vorkath.getItemById(1).getQuantity());
+		assertTrue(vorkath.getItemById(PET_ID).isObtained());
+		assertEquals(4, vorkath.getKillCountByName("Vorkath kills").getAmount());
+
+		// The save file's page was stored under a different case and is found case-insensitively
+		CollectionLogPage zulrah = collectionLog.searchForPage("ZULRAH");
+		assertTrue(zulrah.getItemById(3).isObtained());
+		assertFalse(zulrah.getItemById(PET_ID).isObtained());
+
+		assertEquals(2, collectionLog.getPagesByItemId(PET_ID).size());
+		assertTrue(collectionLog.getPagesByItemId(99).isEmpty());
+		assertNull(collectionLog.searchForPage("Removed page"));
+	}
+
+	@Test
+	public void testUpdateObtainedItem()
+	{
+		CollectionLogManager collectionLogManager = new CollectionLogManager();
+		collectionLogManager.publishCollectionLog(collectionLog);
+
+		List<CollectionLogPage> updatedPages = collectionLogManager.updateObtainedItem(new ItemStack(PET_ID, 1));
+		assertEquals(2, updatedPages.size());
+		assertConsistent(collectionLog);
+		assertEquals(4, collectionLog.getTotalObtained());
+		assertEquals(4, collectionLog.getUniqueObtained());
+		assertEquals(2, collectionLog.searchForPage("Vorkath").getItemById(PET_ID).getQuantity());
+		assertTrue(collectionLog.searchForPage("Zulrah").getItemById(PET_ID).isObtained());
+
+		collectionLogManager.updateObtainedItem(new ItemStack(7, 3));
+		assertConsistent(collectionLog);
+		assertEquals(5, collectionLog.getTotalObtained());
+
+		assertTrue(collectionLogManager.updateObtainedItem(new ItemStack(12345, 1)).isEmpty());
+		assertConsistent(collectionLog);
+
+		// The published snapshot carries the same totals
+		CollectionLog snapshot = collectionLogManager.getSnapshot();
+		assertSame(collectionLog.snapshot(), snapshot);
+		assertConsistent(snapshot);
+		assertEquals(5, snapshot.getTotalObtained());
+	}
+
+	@Test
+	public void testSetPageItems()
+	{
+		CollectionLogPage zulrah = collectionLog.searchForPage("Zulrah");
+
+		List<CollectionLogItem> items = new ArrayList<>();
+		items.add(new CollectionLogItem(3, "Item 3", 1, true, 0));
+		items.add(new CollectionLogItem(4, "Item 4", 2, true, 1));
+		items.add(new CollectionLogItem(8, "Item 8", 1, true, 2));
+		collectionLog.setPageItems(zulrah, items);
+
+		assertConsistent(collectionLog);
+		assertEquals(5, collectionLog.getTotalObtained());
+		assertEquals(8, collectionLog.getTotalItems());
+		assertEquals(Collections.singletonList(zulrah), collectionLog.getPagesByItemId(8));
+		assertTrue(collectionLog.getPagesByItemId(5).isEmpty());
+		assertEquals(1, collectionLog.getPagesByItemId(PET_ID).size());
+
+		zulrah.getItemById(4).setObtained(false);
+		assertConsistent(collectionLog);
+		assertEquals(4, collectionLog.getTotalObtained());
+	}
+
+	@Test
+	public void testRandomMissingItem()
+	{
+		for (CollectionLog log : Arrays.asList(collectionLog, collectionLog.snapshot()))
+		{
+			Set<Integer> missingItemIds = new HashSet<>();
+			for (int i = 0; i < 1000; i++)
+			{
+				CollectionLogItem item = log.randomMissingItem();
+				assertFalse(item.isObtained());
+				missingItemIds.add(item.getId());
+			}
+			assertEquals(new HashSet<>(Arrays.asList(2, 4, 5, 6, 7, PET_ID)), missingItemIds);
+		}
+
+		for (CollectionLogTab tab : collectionLog.getTabs().values())
+		{
+			for (CollectionLogPage page : tab.getPages().values())
+			{
+				for (CollectionLogItem item : page.getItems())
+				{
+					item.setObtained(true);
+				}
+			}
+		}
+		assertConsistent(collectionLog);
+		assertNull(collectionLog.randomMissingItem());
+		assertNull(collectionLog.snapshot().randomMissingItem());
+	}
+
+	@Test
+	public void testSnapshotRandomMissingItemAfterChange()
+	{
+		CollectionLog snapshot = collectionLog.snapshot();
+		for (CollectionLogPage page : collectionLog.getPagesByItemId(PET_ID))
+		{
+			page.getItemById(PET_ID).setObtained(true);
+		}
+		collectionLog.searchForPage("Miscellaneous").getItemById(6).setObtained(true);
+
+		// The snapshot keeps the missing items it was taken with while the collection log's index changes
+		Set<Integer> snapshotMissingItemIds = new HashSet<>();
+		Set<Integer> missingItemIds = new HashSet<>();
+		for (int i = 0; i < 1000; i++)
+		{
+			snapshotMissingItemIds.add(snapshot.randomMissingItem().getId());
+			missingItemIds.add(collectionLog.randomMissingItem().getId());
+		}
+		assertEquals(new HashSet<>(Arrays.asList(2, 4, 5, 6, 7, PET_ID)), snapshotMissingItemIds);
+		assertEquals(new HashSet<>(Arrays.asList(2, 4, 5, 7)), missingItemIds);
+	}
+
+	/**
+	 * Check the incremental page, tab and collection log totals against counts recomputed from the items
+	 */
+	private static void assertConsistent(CollectionLog collectionLog)
+	{
+		int totalObtained = 0;
+		int totalItems = 0;
+		for (CollectionLogTab tab : collectionLog.getTabs().values())
+		{
+			int tabObtained = 0;
+			int tabItems = 0;
+			for (CollectionLogPage page : tab.getPages().values())
+			{
+				int pageObtained = 0;
+				for (CollectionLogItem item : page.getItems())
+				{
+					if (item.isObtained())
+					{
+						pageObtained++;
+					}
+					assertTrue(collectionLog.getPagesByItemId(item.getId()).contains(page));
+				}
+
+				assertEquals(page.getName(), pageObtained, page.getObtainedItemCount());
+				assertEquals(page.getName(), page.getItems().size() - pageObtained, page.getMissingItemCount());
+				assertSame(page, collectionLog.searchForPage(page.getName()));
+				tabObtained += pageObtained;
+				tabItems += page.getItems().size();
+			}
+
+			assertEquals(tab.getName(), tabObtained, tab.getObtainedItemCount());
+			assertEquals(tab.getName(), tabItems, tab.getItemCount());
+			totalObtained += tabObtained;
+			totalItems += tabItems;
+		}
+
+		assertEquals(totalObtained, collectionLog.getTotalObtained());
+		assertEquals(totalItems, collectionLog.getTotalItems());
+	}
+
+	private static CollectionLogPageDefinition createDefinition(String name, int... itemIds)
+	{
+		String[] itemNames = new String[itemIds.length];
+		for (int i = 0; i < itemIds.length; i++)
+		{
+			itemNames[i] = "Item " + itemIds[i];
+		}
+		return new CollectionLogPageDefinition(name, itemIds, itemNames, Collections.singletonList(name + " kills"));
+	}
+
+	private static CollectionLog createSaveFile()
+	{
+		List<CollectionLogItem> vorkathItems = new ArrayList<>();
+		vorkathItems.add(new CollectionLogItem(1, "Item 1", 2, true, 0));
+		vorkathItems.add(new CollectionLogItem(2, "Item 2", 0, false, 1));
+		vorkathItems.add(new CollectionLogItem(99, "Removed item", 1, true, 2));
+		vorkathItems.add(new CollectionLogItem(PET_ID, "Item " + PET_ID, 1, true, 3));
+		List<CollectionLogKillCount> vorkathKillCounts = Collections.singletonList(new CollectionLogKillCount("Vorkath kills", 4, 0));
+
+		List<CollectionLogItem> zulrahItems = new ArrayList<>();
+		zulrahItems.add(new CollectionLogItem(3, "Item 3", 1, true, 0));
+
+		List<CollectionLogItem> removedItems = new ArrayList<>();
+		removedItems.add(new CollectionLogItem(50, "Item 50", 1, true, 0));
+
+		Map<String, CollectionLogPage> pages = new HashMap<>();
+		pages.put("Vorkath", new CollectionLogPage("Vorkath", vorkathItems, vorkathKillCounts, true));
+		pages.put("zulrah", new CollectionLogPage("zulrah", zulrahItems, new ArrayList<>(), false));
+		pages.put("Removed page", new CollectionLogPage("Removed page", removedItems, new ArrayList<>(), false));
+
+		Map<String, CollectionLogTab> tabs = new HashMap<>();
+		tabs.put("Bosses", new CollectionLogTab("Bosses", pages));
+		return new CollectionLog(USERNAME, 3, 8, tabs);
+	}
+}
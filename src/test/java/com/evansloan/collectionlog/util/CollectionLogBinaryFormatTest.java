@@ -0,0 +1,223 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogTab;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CollectionLogBinaryFormatTest
+{
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		CollectionLog collectionLog = createCollectionLog();
+		CollectionLogBinaryFormat binaryFormat = new CollectionLogBinaryFormat();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		binaryFormat.write(new DataOutputStream(bytes), collectionLog);
+
+		assertEquals(toJson(collectionLog), toJson(binaryFormat.read(bytes.toByteArray())));
+	}
+
+	@Test
+	public void testCompressedFileRoundTrip() throws IOException
+	{
+		CollectionLog collectionLog = createCollectionLog();
+		CollectionLogBinaryFormat binaryFormat = new CollectionLogBinaryFormat();
+		String filePath = temporaryFolder.newFile().getPath();
+
+		assertTrue(binaryFormat.writeFile(filePath, collectionLog, true));
+		assertTrue(isCompressed(filePath));
+		assertEquals(toJson(collectionLog), toJson(binaryFormat.readFile(filePath)));
+	}
+
+	@Test
+	public void testVarInt() throws IOException
+	{
+		int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+		for (int value : values)
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			CollectionLogBinaryFormat.writeVarInt(new DataOutputStream(bytes), value);
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			assertEquals(value, CollectionLogBinaryFormat.readVarInt(in));
+			assertEquals(0, in.available());
+		}
+
+		assertEquals(1, varIntLength(127));
+		assertEquals(2, varIntLength(128));
+		assertEquals(5, varIntLength(-1));
+	}
+
+	@Test
+	public void testZigzag()
+	{
+		assertEquals(0, CollectionLogBinaryFormat.zigzagEncode(0));
+		assertEquals(1, CollectionLogBinaryFormat.zigzagEncode(-1));
+		assertEquals(2, CollectionLogBinaryFormat.zigzagEncode(1));
+		assertEquals(3, CollectionLogBinaryFormat.zigzagEncode(-2));
+
+		int[] values = {0, 1, -1, 1234, -1234, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		for (int value : values)
+		{
+			assertEquals(value, CollectionLogBinaryFormat.zigzagDecode(CollectionLogBinaryFormat.zigzagEncode(value)));
+		}
+	}
+
+	@Test
+	public void testInvalidCount() throws IOException
+	{
+		assertInvalid(Integer.MAX_VALUE);
+		assertInvalid(-1);
+	}
+
+	@Test
+	public void testTruncatedFile() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new CollectionLogBinaryFormat().write(new DataOutputStream(bytes), createCollectionLog());
+		byte[] data = bytes.toByteArray();
+
+		File file = temporaryFolder.newFile();
+		try (FileOutputStream out = new FileOutputStream(file))
+		{
+			out.write(data, 0, data.length / 2);
+		}
+		assertNull(new CollectionLogBinaryFormat().readFile(file.getPath()));
+	}
+
+	@Test
+	public void testMigrateJsonFile() throws IOException
+	{
+		CollectionLog collectionLog = createCollectionLog();
+		JsonUtils jsonUtils = new JsonUtils();
+		jsonUtils.gson = new Gson();
+
+		String jsonFilePath = new File(temporaryFolder.getRoot(), "collectionlog-user.json").getPath();
+		String filePath = new File(temporaryFolder.getRoot(), "collectionlog-user.dat").getPath();
+		assertTrue(jsonUtils.writeJsonFile(jsonFilePath, collectionLog, new CollectionLogTypeAdapter()));
+
+		CollectionLogBinaryFormat binaryFormat = new CollectionLogBinaryFormat();
+		CollectionLog migratedCollectionLog = binaryFormat.migrateJsonFile(jsonUtils, jsonFilePath, filePath, true);
+
+		assertEquals(toJson(collectionLog), toJson(migratedCollectionLog));
+		assertFalse(new File(jsonFilePath).exists());
+		assertTrue(isCompressed(filePath));
+		assertEquals(toJson(collectionLog), toJson(binaryFormat.readFile(filePath)));
+	}
+
+	@Test
+	public void testMigrateUnreadableJsonFile() throws IOException
+	{
+		JsonUtils jsonUtils = new JsonUtils();
+		jsonUtils.gson = new Gson();
+
+		File jsonFile = temporaryFolder.newFile();
+		File file = new File(temporaryFolder.getRoot(), "collectionlog-user.dat");
+		try (FileWriter writer = new FileWriter(jsonFile))
+		{
+			writer.write("{\"tabs\": {");
+		}
+
+		assertNull(new CollectionLogBinaryFormat().migrateJsonFile(jsonUtils, jsonFile.getPath(), file.getPath(), false));
+		assertTrue(jsonFile.exists());
+		assertFalse(file.exists());
+	}
+
+	private void assertInvalid(int count) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(new byte[]{'C', 'L', 'O', 'G'});
+		CollectionLogBinaryFormat.writeVarInt(out, 2);
+		CollectionLogBinaryFormat.writeVarInt(out, count);
+
+		try
+		{
+			new CollectionLogBinaryFormat().read(bytes.toByteArray());
+			fail("Read string table count " + count);
+		}
+		catch (IOException e)
+		{
+			assertEquals("Invalid count " + count, e.getMessage());
+		}
+	}
+
+	private static int varIntLength(int value) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CollectionLogBinaryFormat.writeVarInt(new DataOutputStream(bytes), value);
+		return bytes.size();
+	}
+
+	private static boolean isCompressed(String filePath) throws IOException
+	{
+		try (InputStream in = new FileInputStream(filePath))
+		{
+			return (in.read() | (in.read() << 8)) == GZIPInputStream.GZIP_MAGIC;
+		}
+	}
+
+	private static JsonElement toJson(CollectionLog collectionLog)
+	{
+		return new CollectionLogTypeAdapter().toJsonTree(collectionLog);
+	}
+
+	private static CollectionLog createCollectionLog()
+	{
+		Map<String, CollectionLogTab> tabs = new HashMap<>();
+		for (int tab = 0; tab < 2; tab++)
+		{
+			Map<String, CollectionLogPage> pages = new HashMap<>();
+			for (int page = 0; page < 3; page++)
+			{
+				String pageName = "Page " + tab + "-" + page;
+
+				List<CollectionLogItem> items = new ArrayList<>();
+				for (int item = 0; item < 10; item++)
+				{
+					// Odd pages are out of slot order to cover item sequences
+					int sequence = page % 2 == 0 ? item : 9 - item;
+					items.add(new CollectionLogItem(1000 * page + item, "Item " + item, item * 3, item % 3 == 0, sequence));
+				}
+
+				List<CollectionLogKillCount> killCounts = new ArrayList<>();
+				killCounts.add(new CollectionLogKillCount(pageName + " kills", page == 1 ? -1 : page * 100, 0));
+
+				pages.put(pageName, new CollectionLogPage(pageName, items, killCounts, page == 0));
+			}
+			tabs.put("Tab " + tab, new CollectionLogTab("Tab " + tab, pages));
+		}
+		return new CollectionLog("user", 20, 60, tabs);
+	}
+}
@@ -0,0 +1,153 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogTab;
+import com.google.gson.JsonElement;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CollectionLogJournalTest
+{
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final CollectionLogJournal journal = new CollectionLogJournal();
+	private final CollectionLogBinaryFormat binaryFormat = new CollectionLogBinaryFormat();
+
+	private String filePath;
+	private String journalFilePath;
+
+	@Before
+	public void before() throws IOException
+	{
+		filePath = new File(temporaryFolder.getRoot(), "collectionlog-user.dat").getPath();
+		journalFilePath = new File(temporaryFolder.getRoot(), "collectionlog-user.journal").getPath();
+		assertTrue(binaryFormat.writeFile(filePath, createCollectionLog(), false));
+	}
+
+	@Test
+	public void testReplayOverSave()
+	{
+		CollectionLog collectionLog = binaryFormat.readFile(filePath);
+		CollectionLogPage firstPage = collectionLog.searchForPage("Page 0");
+		CollectionLogItem item = firstPage.getItemById(1);
+		item.setQuantity(3);
+		item.setObtained(true);
+		assertTrue(journal.append(journalFilePath, journal.itemRecord(firstPage, item)));
+
+		CollectionLogPage secondPage = collectionLog.searchForPage("Page 1");
+		List<CollectionLogItem> items = new ArrayList<>();
+		items.add(new CollectionLogItem(1000, "Item 0", 2, true, 0));
+		items.add(new CollectionLogItem(1001, "Item 1", 1, true, 1));
+		collectionLog.setPageItems(secondPage, items);
+		secondPage.setKillCounts(Collections.singletonList(new CollectionLogKillCount("Page 1 kills", 42, 0)));
+		secondPage.setUpdated(true);
+		assertTrue(journal.append(journalFilePath, journal.pageRecord(secondPage)));
+
+		CollectionLog replayedCollectionLog = binaryFormat.readFile(filePath);
+		assertEquals(2, journal.replay(journalFilePath, replayedCollectionLog));
+		assertEquals(toJson(collectionLog), toJson(replayedCollectionLog));
+		assertEquals(collectionLog.getTotalObtained(), replayedCollectionLog.getTotalObtained());
+		assertEquals(collectionLog.getTotalItems(), replayedCollectionLog.getTotalItems());
+
+		// Records hold the new state, so replaying them again changes nothing
+		assertEquals(2, journal.replay(journalFilePath, replayedCollectionLog));
+		assertEquals(toJson(collectionLog), toJson(replayedCollectionLog));
+	}
+
+	@Test
+	public void testTruncatedLastRecord() throws IOException
+	{
+		CollectionLog collectionLog = binaryFormat.readFile(filePath);
+		CollectionLogPage page = collectionLog.searchForPage("Page 0");
+		for (int itemId = 0; itemId < 3; itemId++)
+		{
+			CollectionLogItem item = page.getItemById(itemId);
+			item.setQuantity(5);
+			assertTrue(journal.append(journalFilePath, journal.itemRecord(page, item)));
+		}
+
+		// Cut the last record off part way through, as a crash mid-append would
+		try (RandomAccessFile file = new RandomAccessFile(journalFilePath, "rw"))
+		{
+			file.setLength(file.length() - 10);
+		}
+
+		CollectionLog replayedCollectionLog = binaryFormat.readFile(filePath);
+		assertEquals(2, journal.replay(journalFilePath, replayedCollectionLog));
+
+		CollectionLogPage replayedPage = replayedCollectionLog.searchForPage("Page 0");
+		assertEquals(5, replayedPage.getItemById(0).getQuantity());
+		assertEquals(5, replayedPage.getItemById(1).getQuantity());
+		assertEquals(0, replayedPage.getItemById(2).getQuantity());
+	}
+
+	@Test
+	public void testClearThenAppend()
+	{
+		CollectionLog collectionLog = binaryFormat.readFile(filePath);
+		CollectionLogPage page = collectionLog.searchForPage("Page 0");
+		CollectionLogItem item = page.getItemById(1);
+
+		item.setQuantity(2);
+		assertTrue(journal.append(journalFilePath, journal.itemRecord(page, item)));
+		journal.clear(journalFilePath);
+		assertFalse(new File(journalFilePath).exists());
+		assertEquals(0, journal.replay(journalFilePath, binaryFormat.readFile(filePath)));
+
+		// Records appended after a clear start a new journal and are replayed in order
+		item.setQuantity(4);
+		assertTrue(journal.append(journalFilePath, journal.itemRecord(page, item)));
+		item.setQuantity(7);
+		assertTrue(journal.append(journalFilePath, journal.itemRecord(page, item)));
+
+		CollectionLog replayedCollectionLog = binaryFormat.readFile(filePath);
+		assertEquals(2, journal.replay(journalFilePath, replayedCollectionLog));
+		assertEquals(7, replayedCollectionLog.searchForPage("Page 0").getItemById(1).getQuantity());
+	}
+
+	private static JsonElement toJson(CollectionLog collectionLog)
+	{
+		return new CollectionLogTypeAdapter().toJsonTree(collectionLog);
+	}
+
+	private static CollectionLog createCollectionLog()
+	{
+		Map<String, CollectionLogPage> pages = new HashMap<>();
+		for (int page = 0; page < 2; page++)
+		{
+			String pageName = "Page " + page;
+
+			List<CollectionLogItem> items = new ArrayList<>();
+			for (int item = 0; item < 4; item++)
+			{
+				items.add(new CollectionLogItem(1000 * page + item, "Item " + item, 0, false, item));
+			}
+
+			List<CollectionLogKillCount> killCounts = new ArrayList<>();
+			killCounts.add(new CollectionLogKillCount(pageName + " kills", 0, 0));
+
+			pages.put(pageName, new CollectionLogPage(pageName, items, killCounts, false));
+		}
+
+		Map<String, CollectionLogTab> tabs = new HashMap<>();
+		tabs.put("Tab", new CollectionLogTab("Tab", pages));
+		return new CollectionLog("user", 0, 8, tabs);
+	}
+}
@@ -0,0 +1,59 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogTab;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class CsvCollectionLogExporterTest
+{
+	@Test
+	public void testEscape()
+	{
+		assertEquals("Abyssal whip", CsvCollectionLogExporter.escape("Abyssal whip"));
+		assertEquals("", CsvCollectionLogExporter.escape(""));
+		assertEquals("", CsvCollectionLogExporter.escape(null));
+		assertEquals("\"Barrows, Ahrim's\"", CsvCollectionLogExporter.escape("Barrows, Ahrim's"));
+		assertEquals("\"The \"\"Big\"\" One\"", CsvCollectionLogExporter.escape("The \"Big\" One"));
+		assertEquals("\"Line\nbreak\"", CsvCollectionLogExporter.escape("Line\nbreak"));
+		assertEquals("\"Carriage\rreturn\"", CsvCollectionLogExporter.escape("Carriage\rreturn"));
+		assertEquals("\"\"\"\"", CsvCollectionLogExporter.escape("\""));
+	}
+
+	@Test
+	public void testExport() throws IOException
+	{
+		List<CollectionLogItem> items = new ArrayList<>();
+		items.add(new CollectionLogItem(1, "Plain", 2, true, 0));
+		items.add(new CollectionLogItem(2, "Comma, \"quoted\"\r\nname", 0, false, 1));
+
+		Map<String, CollectionLogPage> pages = new LinkedHashMap<>();
+		List<CollectionLogKillCount> killCounts = Collections.emptyList();
+		pages.put("Page, one", new CollectionLogPage("Page, one", items, killCounts, false));
+
+		Map<String, CollectionLogTab> tabs = new LinkedHashMap<>();
+		tabs.put("Bosses", new CollectionLogTab("Bosses", pages));
+		CollectionLog collectionLog = new CollectionLog("user", 1, 2, tabs);
+
+		StringWriter writer = new StringWriter();
+		new CsvCollectionLogExporter().export(collectionLog, writer, false);
+
+		// Line breaks inside quoted fields are part of the field, not a new row
+		assertEquals(
+			"tab,page,item_id,item_name,quantity,obtained\r\n"
+				+ "Bosses,\"Page, one\",1,Plain,2,true\r\n"
+				+ "Bosses,\"Page, one\",2,\"Comma, \"\"quoted\"\"\r\nname\",0,false\r\n",
+			writer.toString()
+		);
+	}
+}
@@ -0,0 +1,67 @@
+package com.evansloan.collectionlog.util;
+
+import com.evansloan.collectionlog.CollectionLog;
+import com.evansloan.collectionlog.CollectionLogItem;
+import com.evansloan.collectionlog.CollectionLogKillCount;
+import com.evansloan.collectionlog.CollectionLogPage;
+import com.evansloan.collectionlog.CollectionLogTab;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NdjsonCollectionLogExporterTest
+{
+	@Test
+	public void testOnePagePerLine() throws IOException
+	{
+		Map<String, CollectionLogTab> tabs = new LinkedHashMap<>();
+		tabs.put("Bosses", createTab("Bosses", "Vorkath", "Line\nbreak page"));
+		tabs.put("Other", createTab("Other", "Carriage\r\nreturn page"));
+		CollectionLog collectionLog = new CollectionLog("user", 0, 6, tabs);
+
+		StringWriter writer = new StringWriter();
+		new NdjsonCollectionLogExporter().export(collectionLog, writer, false);
+		String export = writer.toString();
+
+		// Line breaks in names are escaped, so every line is exactly one complete page
+		assertTrue(export.endsWith("\n"));
+		assertEquals(-1, export.indexOf('\r'));
+		String[] lines = export.split("\n");
+		assertEquals(3, lines.length);
+
+		String[][] expectedPages = {{"Bosses", "Vorkath"}, {"Bosses", "Line\nbreak page"}, {"Other", "Carriage\r\nreturn page"}};
+		for (int i = 0; i < lines.length; i++)
+		{
+			JsonObject page = new JsonParser().parse(lines[i]).getAsJsonObject();
+			assertEquals(expectedPages[i][0], page.get("tab").getAsString());
+			assertEquals(expectedPages[i][1], page.get("page").getAsString());
+			assertEquals(2, page.getAsJsonArray("items").size());
+			assertEquals(expectedPages[i][1] + " kills", page.getAsJsonArray("killCounts").get(0).getAsJsonObject().get("name").getAsString());
+		}
+	}
+
+	private static CollectionLogTab createTab(String tabName, String... pageNames)
+	{
+		Map<String, CollectionLogPage> pages = new LinkedHashMap<>();
+		for (String pageName : pageNames)
+		{
+			List<CollectionLogItem> items = new ArrayList<>();
+			items.add(new CollectionLogItem(1, "Item 1", 1, true, 0));
+			items.add(new CollectionLogItem(2, "Item\n2", 0, false, 1));
+
+			List<CollectionLogKillCount> killCounts = new ArrayList<>();
+			killCounts.add(new CollectionLogKillCount(pageName + " kills", 5, 0));
+
+			pages.put(pageName, new CollectionLogPage(pageName, items, killCounts, false));
+		}
+		return new CollectionLogTab(tabName, pages);
+	}
+}